@@ -0,0 +1,30 @@
+package ee.futu.booking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.futu.booking.service.IdempotencyStore;
+import ee.futu.booking.web.IdempotencyFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration
+public class IdempotencyConfig {
+
+    // POST endpoints that create rows, where a blind client retry would create a second one
+    private static final Set<String> IDEMPOTENT_PATHS = Set.of(
+            "/api/bookings",
+            "/api/bookings/hold",
+            "/api/bookings/hold/batch",
+            "/api/payments/start");
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore store,
+            ObjectMapper objectMapper) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(store, objectMapper, IDEMPOTENT_PATHS));
+        registration.addUrlPatterns("/api/bookings", "/api/bookings/*", "/api/payments/start");
+        return registration;
+    }
+}
@@ -8,17 +8,18 @@ import lombok.Setter;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "booking", uniqueConstraints = {
-                @UniqueConstraint(columnNames = { "room_id", "booking_date", "start_time" })
-})
+@Table(name = "booking")
 @Getter
 @Setter
 public class Booking {
 
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        // Sequence ids, allocated 50 at a time, let Hibernate batch inserts
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+        @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
         private Long id;
 
         @ManyToOne(optional = false)
@@ -51,7 +52,7 @@ public class Booking {
         private String customerPhone;
 
         @Column
-        private String paymentReference;
+        private UUID paymentReference;
 
         @Column(length = 32)
         private String paymentProvider;
@@ -65,11 +66,11 @@ public class Booking {
         @Version
         private Integer version;
 
-    public String getPaymentReference() {
+    public UUID getPaymentReference() {
         return paymentReference;
     }
 
-    public void setPaymentReference(String paymentReference) {
+    public void setPaymentReference(UUID paymentReference) {
         this.paymentReference = paymentReference;
     }
 
@@ -0,0 +1,25 @@
+package ee.futu.booking.domain.booking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Read-only projection of the columns needed for overlap and availability
+ * checks. Selected with a constructor expression, so no entity, room or
+ * customer data is loaded and nothing enters the persistence context.
+ */
+public record BookingInterval(
+        Long id,
+        Long roomId,
+        LocalDate bookingDate,
+        LocalTime startTime,
+        LocalTime endTime,
+        BookingStatus status,
+        LocalDateTime expiresAt) {
+
+    public static BookingInterval of(Booking booking) {
+        return new BookingInterval(booking.getId(), booking.getRoom().getId(), booking.getBookingDate(),
+                booking.getStartTime(), booking.getEndTime(), booking.getStatus(), booking.getExpiresAt());
+    }
+}
@@ -4,42 +4,80 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-        @Query("SELECT b FROM Booking b WHERE b.room.id = :roomId AND b.bookingDate = :date AND b.status IN :statuses")
-        List<Booking> findByRoomIdAndBookingDateAndStatusIn(@Param("roomId") Long roomId,
-                        @Param("date") java.time.LocalDate date,
-                        @Param("statuses") List<BookingStatus> statuses);
+        String INTERVAL_SELECT = "SELECT new ee.futu.booking.domain.booking.BookingInterval(" +
+                        "b.id, b.room.id, b.bookingDate, b.startTime, b.endTime, b.status, b.expiresAt) FROM Booking b ";
+
+        // Statuses are inlined as literals rather than bound, so PostgreSQL can prove that these
+        // queries match the predicate of the partial index idx_booking_blocking_room_date.
+        String CONFIRMED = "ee.futu.booking.domain.booking.BookingStatus.CONFIRMED";
+        String DRAFT = "ee.futu.booking.domain.booking.BookingStatus.DRAFT";
+        String PENDING_PAYMENT = "ee.futu.booking.domain.booking.BookingStatus.PENDING_PAYMENT";
+        String CANCELLED = "ee.futu.booking.domain.booking.BookingStatus.CANCELLED";
+
+        String BLOCKING = "b.status IN (" + CONFIRMED + ", " + DRAFT + ", " + PENDING_PAYMENT + ")";
+
+        String ACTIVE = BLOCKING + " AND " +
+                        "(b.status = " + CONFIRMED + " OR (b.status = " + DRAFT + " AND b.expiresAt > :now))";
+
+        /**
+         * Every booking with a blocking status, matching the WHERE clause of the
+         * exclusion constraint on PostgreSQL. Lapsed temporary bookings are
+         * included, so settle them first with
+         * {@code ExpiredBookingSweep#cancelExpiredOn}.
+         */
+        @Query(INTERVAL_SELECT + "WHERE b.room.id = :roomId AND b.bookingDate = :date AND " + BLOCKING)
+        List<BookingInterval> findBlockingIntervals(@Param("roomId") Long roomId,
+                        @Param("date") java.time.LocalDate date);
+
+        @Query(INTERVAL_SELECT + "WHERE b.room.id IN :roomIds AND b.bookingDate BETWEEN :from AND :to AND " + BLOCKING)
+        List<BookingInterval> findBlockingIntervalsInRange(@Param("roomIds") Collection<Long> roomIds,
+                        @Param("from") java.time.LocalDate from,
+                        @Param("to") java.time.LocalDate to);
 
         List<Booking> findByRoomIdAndBookingDateOrderByStartTime(Long roomId, java.time.LocalDate date);
 
-        @Query("SELECT b FROM Booking b WHERE b.room.id = :roomId AND b.bookingDate = :date AND " +
-                        "(b.status = :confirmedStatus OR (b.status = :draftStatus AND b.expiresAt > :now))")
-        List<Booking> findActiveBookings(@Param("roomId") Long roomId,
+        @Query(INTERVAL_SELECT + "WHERE b.room.id = :roomId AND b.bookingDate = :date AND " + ACTIVE)
+        List<BookingInterval> findActiveIntervals(@Param("roomId") Long roomId,
                         @Param("date") java.time.LocalDate date,
-                        @Param("confirmedStatus") BookingStatus confirmedStatus,
-                        @Param("draftStatus") BookingStatus draftStatus,
                         @Param("now") LocalDateTime now);
 
-        @Query("SELECT b FROM Booking b WHERE b.status = :draftStatus AND b.expiresAt <= :now")
-        List<Booking> findExpiredDrafts(@Param("draftStatus") BookingStatus draftStatus,
+        @Query(INTERVAL_SELECT + "WHERE b.room.id IN :roomIds AND b.bookingDate BETWEEN :from AND :to AND " + ACTIVE)
+        List<BookingInterval> findActiveIntervalsInRange(@Param("roomIds") Collection<Long> roomIds,
+                        @Param("from") java.time.LocalDate from,
+                        @Param("to") java.time.LocalDate to,
                         @Param("now") LocalDateTime now);
 
-        @Query("SELECT b FROM Booking b WHERE b.status IN :statuses AND b.expiresAt <= :now")
-        List<Booking> findExpiredTemporaryBookings(@Param("statuses") List<BookingStatus> statuses,
-                        @Param("now") LocalDateTime now);
+        @Query("SELECT MIN(b.expiresAt) FROM Booking b WHERE b.status IN (" + DRAFT + ", " + PENDING_PAYMENT + ") " +
+                        "AND b.expiresAt <= :now")
+        LocalDateTime findOldestLapsedExpiry(@Param("now") LocalDateTime now);
+
+        @Query(INTERVAL_SELECT + "WHERE b.status IN (" + DRAFT + ", " + PENDING_PAYMENT + ") " +
+                        "AND b.expiresAt IS NOT NULL")
+        List<BookingInterval> findPendingExpiries();
 
         @Modifying
-        @Transactional
-        @Query("UPDATE Booking b SET b.status = :cancelledStatus WHERE b.id IN :ids")
-        int updateStatusByIds(@Param("ids") List<Long> ids,
-                        @Param("cancelledStatus") BookingStatus cancelledStatus);
+        @Query(value = "INSERT INTO booking (id, room_id, booking_date, start_time, end_time, status, " +
+                        "total_price_cents, expires_at, created_at, updated_at, version) " +
+                        "VALUES (:id, :roomId, :date, :startTime, :endTime, 'DRAFT', :priceCents, :expiresAt, " +
+                        "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)", nativeQuery = true)
+        void insertDraft(@Param("id") Long id,
+                        @Param("roomId") Long roomId,
+                        @Param("date") java.time.LocalDate date,
+                        @Param("startTime") java.time.LocalTime startTime,
+                        @Param("endTime") java.time.LocalTime endTime,
+                        @Param("priceCents") int priceCents,
+                        @Param("expiresAt") LocalDateTime expiresAt);
+
+        Optional<Booking> findByPaymentReference(UUID paymentReference);
 
-        Optional<Booking> findByPaymentReference(String paymentReference);
+        List<Booking> findByPaymentReferenceIn(Collection<UUID> paymentReferences);
 }
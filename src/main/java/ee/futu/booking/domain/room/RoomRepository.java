@@ -2,5 +2,9 @@ package ee.futu.booking.domain.room;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface RoomRepository extends JpaRepository<Room, Long> {
+
+    List<Room> findByActiveTrueOrderById();
 }
@@ -2,5 +2,9 @@ package ee.futu.booking.domain.slot;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface SlotTemplateRepository extends JpaRepository<SlotTemplate, Long> {
+
+    List<SlotTemplate> findByActiveTrue();
 }
@@ -0,0 +1,62 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * PostgreSQL {@link BookingLock} for multi-node deployments: a
+ * transaction-scoped advisory lock keyed by (roomId, epoch day), released
+ * by the database on commit or rollback. The wait is bounded with
+ * {@code SET LOCAL lock_timeout}, which stays in effect for the rest of the
+ * transaction.
+ *
+ * The lock only orders the writers; the check it guards is as good across
+ * nodes as what it reads. Booking rows are shared, holds kept in memory
+ * ({@code app.booking.hold.mode=memory}) are not.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.lock.type", havingValue = "advisory")
+public class AdvisoryBookingLock implements BookingLock {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String lockTimeout;
+    private final Timer waitTimer;
+
+    public AdvisoryBookingLock(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.booking.lock.timeout:5s}") Duration timeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTimeout = timeout.toMillis() + "ms";
+        this.waitTimer = Timer.builder("booking.lock.wait").tag("type", "advisory").register(meterRegistry);
+    }
+
+    @Override
+    public void lock(Long roomId, LocalDate date) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Booking locks must be taken inside a transaction");
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout + "'");
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, ?)",
+                    Math.toIntExact(roomId), Math.toIntExact(date.toEpochDay()));
+        } catch (PessimisticLockingFailureException e) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "BOOKING_LOCK_TIMEOUT");
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.web.AvailabilityResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-backed cache of computed availability per (roomId, date).
+ * Entries are evicted after every committed booking change on the room-day;
+ * the TTL only bounds staleness from DRAFT holds that lapse without a write.
+ */
+@Component
+public class AvailabilityCache {
+
+    private final Map<RoomDay, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public AvailabilityCache(MeterRegistry meterRegistry,
+            @Value("${app.availability.cache.ttl:30s}") Duration ttl,
+            @Value("${app.availability.cache.max-size:10000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("availability.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("availability.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("availability.cache.evictions").register(meterRegistry);
+        Gauge.builder("availability.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public AvailabilityResponse get(Long roomId, LocalDate date, Supplier<AvailabilityResponse> loader) {
+        RoomDay key = new RoomDay(roomId, date);
+        long now = System.nanoTime();
+
+        Entry cached = entries.get(key);
+        if (cached != null && cached.value != null && now - cached.loadedAt < ttlNanos) {
+            hits.increment();
+            return cached.value;
+        }
+        misses.increment();
+
+        // Park a placeholder first: if a write evicts the key while we load, the
+        // conditional replace below fails and the stale result is not cached.
+        Entry placeholder = new Entry(null, now);
+        if (cached == null) {
+            entries.putIfAbsent(key, placeholder);
+        } else {
+            entries.replace(key, cached, placeholder);
+        }
+
+        AvailabilityResponse value = loader.get();
+        if (entries.replace(key, placeholder, new Entry(value, now))) {
+            trimToSize();
+        }
+        return value;
+    }
+
+    public void evict(Long roomId, LocalDate date) {
+        if (entries.remove(new RoomDay(roomId, date)) != null) {
+            evictions.increment();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        evict(event.roomId(), event.date());
+    }
+
+    @EventListener
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        clear();
+    }
+
+    private void trimToSize() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.value != null && now - entry.loadedAt >= ttlNanos);
+
+        Iterator<RoomDay> keys = entries.keySet().iterator();
+        while (entries.size() > maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    // Identity equality on purpose: conditional replace must match the exact placeholder
+    private static final class Entry {
+        private final AvailabilityResponse value;
+        private final long loadedAt;
+
+        private Entry(AvailabilityResponse value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,72 +1,252 @@
 package ee.futu.booking.service;
 
-import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingInterval;
 import ee.futu.booking.domain.booking.BookingRepository;
-import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.domain.room.Room;
+import ee.futu.booking.domain.room.RoomRepository;
+import ee.futu.booking.web.AvailabilityRangeResponse;
 import ee.futu.booking.web.AvailabilityResponse;
+import ee.futu.booking.web.AvailableSlot;
+import ee.futu.booking.web.MonthAvailabilityResponse;
+import ee.futu.booking.web.NextAvailabilityResponse;
 import ee.futu.booking.web.SlotInfo;
 import ee.futu.booking.web.SlotStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
 @Service
 public class AvailabilityService {
 
-    private final BookingRepository bookingRepository;
+    static final int MAX_RANGE_DAYS = 62;
+    static final int MAX_NEXT_LIMIT = 50;
+    static final int HORIZON_MONTHS = 6;
+    static final int MIN_YEAR = 1;
+    static final int MAX_YEAR = 9999;
+    private static final int FIRST_CHUNK_DAYS = 7;
 
-    public AvailabilityService(BookingRepository bookingRepository) {
+    private final BookingRepository bookingRepository;
+    private final RoomRepository roomRepository;
+    private final AvailabilityCache availabilityCache;
+    private final OccupancyIndex occupancyIndex;
+    private final ScheduleEngine scheduleEngine;
+    private final HoldRegistry holdRegistry;
+
+    public AvailabilityService(BookingRepository bookingRepository, RoomRepository roomRepository,
+            AvailabilityCache availabilityCache, OccupancyIndex occupancyIndex, ScheduleEngine scheduleEngine,
+            HoldRegistry holdRegistry) {
         this.bookingRepository = bookingRepository;
+        this.roomRepository = roomRepository;
+        this.availabilityCache = availabilityCache;
+        this.occupancyIndex = occupancyIndex;
+        this.scheduleEngine = scheduleEngine;
+        this.holdRegistry = holdRegistry;
     }
 
     public AvailabilityResponse getAvailability(Long roomId, LocalDate date) {
-        List<Booking> blockingBookings = getBlockingBookings(roomId, date);
-        List<SlotInfo> slots = generateSlots(date, blockingBookings);
+        return availabilityCache.get(roomId, date, () -> computeAvailability(roomId, date));
+    }
 
-        return new AvailabilityResponse(date, roomId, slots);
+    public AvailabilityRangeResponse getAvailabilityRange(LocalDate from, LocalDate to, List<Long> roomIds) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(BAD_REQUEST, "INVALID_DATE_RANGE");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new ResponseStatusException(BAD_REQUEST, "DATE_RANGE_TOO_LARGE");
+        }
+
+        List<Long> rooms = resolveRooms(roomIds);
+        if (rooms.isEmpty()) {
+            return new AvailabilityRangeResponse(from, to, Collections.emptyList());
+        }
+
+        // One query for the whole window, grouped by room and date in memory
+        Map<Long, Map<LocalDate, List<BookingInterval>>> bookingsByRoomAndDate = groupByRoomAndDate(
+                getBlockingBookings(rooms, from, to));
+
+        List<AvailabilityResponse> days = new ArrayList<>();
+        for (Long roomId : rooms) {
+            Map<LocalDate, List<BookingInterval>> bookingsByDate = bookingsByRoomAndDate.getOrDefault(roomId,
+                    Collections.emptyMap());
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                List<BookingInterval> blockingBookings = bookingsByDate.getOrDefault(date, Collections.emptyList());
+                OccupancyIndex.Occupancy occupancy = occupancyIndex.build(blockingBookings);
+                days.add(new AvailabilityResponse(date, roomId, generateSlots(date, occupancy)));
+            }
+        }
+
+        return new AvailabilityRangeResponse(from, to, days);
     }
 
-    private List<Booking> getBlockingBookings(Long roomId, LocalDate date) {
-        // Use new method that considers DRAFT expiry
-        return bookingRepository.findActiveBookings(
-                roomId, date, BookingStatus.CONFIRMED, BookingStatus.DRAFT, LocalDateTime.now());
+    /**
+     * Earliest free slots from {@code from} (today if earlier) up to the
+     * booking horizon, ordered by date, start time and room. The window is
+     * read in chunks that double in size, so a nearby hit costs one small
+     * query and a distant one only a handful.
+     */
+    public NextAvailabilityResponse findNextAvailable(LocalDate from, List<Long> roomIds, int limit) {
+        if (limit < 1 || limit > MAX_NEXT_LIMIT) {
+            throw new ResponseStatusException(BAD_REQUEST, "INVALID_LIMIT");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDate start = from == null || from.isBefore(today) ? today : from;
+        LocalDate horizon = today.plusMonths(HORIZON_MONTHS);
+        List<Long> rooms = resolveRooms(roomIds);
+
+        List<AvailableSlot> found = new ArrayList<>();
+        int chunkDays = FIRST_CHUNK_DAYS;
+        LocalDate chunkStart = start;
+        while (!rooms.isEmpty() && !chunkStart.isAfter(horizon) && found.size() < limit) {
+            LocalDate chunkEnd = chunkStart.plusDays(chunkDays - 1);
+            if (chunkEnd.isAfter(horizon)) {
+                chunkEnd = horizon;
+            }
+
+            Map<Long, Map<LocalDate, List<BookingInterval>>> bookingsByRoomAndDate = groupByRoomAndDate(
+                    getBlockingBookings(rooms, chunkStart, chunkEnd));
+            for (LocalDate date = chunkStart; !date.isAfter(chunkEnd) && found.size() < limit;
+                    date = date.plusDays(1)) {
+                collectFreeSlots(date, rooms, bookingsByRoomAndDate, now, limit, found);
+            }
+
+            chunkStart = chunkEnd.plusDays(1);
+            chunkDays = Math.min(chunkDays * 2, MAX_RANGE_DAYS);
+        }
+
+        return new NextAvailabilityResponse(start, found);
     }
 
-    private List<SlotInfo> generateSlots(LocalDate date, List<Booking> blockingBookings) {
-        List<SlotInfo> slots = new ArrayList<>();
-        List<SlotRules.SlotDef> slotDefs = SlotRules.allowedSlotsFor(date);
-        int priceCents = SlotRules.priceCentsFor(date);
+    /**
+     * Slot and free-slot counts for every day of a month, from one read of
+     * the month's blocking bookings. A slot counts as free under the same
+     * rule as {@link #getAvailability}: a booking also takes a slot its
+     * cleanup buffer runs into, not just the one it starts on.
+     */
+    public MonthAvailabilityResponse getMonthAvailability(Long roomId, int year, int month) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new ResponseStatusException(BAD_REQUEST, "INVALID_YEAR");
+        }
+        if (month < 1 || month > 12) {
+            throw new ResponseStatusException(BAD_REQUEST, "INVALID_MONTH");
+        }
+        YearMonth yearMonth = YearMonth.of(year, month);
+        LocalDate first = yearMonth.atDay(1);
+
+        Map<LocalDate, List<BookingInterval>> bookingsByDate = groupByRoomAndDate(
+                getBlockingBookings(List.of(roomId), first, yearMonth.atEndOfMonth()))
+                .getOrDefault(roomId, Collections.emptyMap());
+
+        int[] totalSlots = new int[yearMonth.lengthOfMonth()];
+        int[] freeSlots = new int[totalSlots.length];
+        for (int day = 0; day < totalSlots.length; day++) {
+            LocalDate date = first.plusDays(day);
+            OccupancyIndex.Occupancy occupancy = occupancyIndex.build(
+                    bookingsByDate.getOrDefault(date, Collections.emptyList()));
+            for (SlotInfo slot : generateSlots(date, occupancy)) {
+                totalSlots[day]++;
+                if (slot.getStatus() == SlotStatus.AVAILABLE) {
+                    freeSlots[day]++;
+                }
+            }
+        }
 
-        for (SlotRules.SlotDef slotDef : slotDefs) {
-            LocalTime slotStart = slotDef.getStartTime();
-            LocalTime slotEnd = slotDef.getEndTime();
-            SlotStatus status = isSlotAvailable(slotStart, slotEnd, blockingBookings)
-                    ? SlotStatus.AVAILABLE
-                    : SlotStatus.UNAVAILABLE;
+        return new MonthAvailabilityResponse(year, month, roomId, totalSlots, freeSlots);
+    }
 
-            slots.add(new SlotInfo(slotStart, slotEnd, status, priceCents));
+    private void collectFreeSlots(LocalDate date, List<Long> rooms,
+            Map<Long, Map<LocalDate, List<BookingInterval>>> bookingsByRoomAndDate, LocalDateTime now,
+            int limit, List<AvailableSlot> found) {
+        OccupancyIndex.Occupancy[] occupancies = new OccupancyIndex.Occupancy[rooms.size()];
+        for (int i = 0; i < rooms.size(); i++) {
+            List<BookingInterval> blockingBookings = bookingsByRoomAndDate
+                    .getOrDefault(rooms.get(i), Collections.emptyMap())
+                    .getOrDefault(date, Collections.emptyList());
+            occupancies[i] = occupancyIndex.build(blockingBookings);
         }
 
-        return slots;
+        for (ScheduleEngine.Slot slot : scheduleEngine.slotsFor(date)) {
+            LocalTime slotStart = slot.startTime();
+            if (date.equals(now.toLocalDate()) && !slotStart.isAfter(now.toLocalTime())) {
+                continue;
+            }
+            int fromBucket = occupancyIndex.firstBucket(slotStart);
+            int toBucket = occupancyIndex.blockingEndBucket(slot.endTime());
+            for (int i = 0; i < rooms.size(); i++) {
+                if (occupancies[i].isFree(fromBucket, toBucket)) {
+                    found.add(new AvailableSlot(date, rooms.get(i), slotStart, slot.endTime(), slot.priceCents()));
+                    if (found.size() == limit) {
+                        return;
+                    }
+                }
+            }
+        }
     }
 
-    private boolean isSlotAvailable(LocalTime slotStart, LocalTime slotEnd, List<Booking> bookings) {
-        return bookings.stream()
-                .noneMatch(booking -> hasOverlap(slotStart, slotEnd, booking));
+    private List<Long> resolveRooms(List<Long> roomIds) {
+        return roomIds == null || roomIds.isEmpty()
+                ? roomRepository.findByActiveTrueOrderById().stream().map(Room::getId).toList()
+                : roomIds.stream().distinct().sorted().toList();
     }
 
-    private boolean hasOverlap(LocalTime slotStart, LocalTime slotEnd, Booking booking) {
-        LocalTime bookingStart = booking.getStartTime();
-        LocalTime bookingEnd = booking.getEndTime();
+    private AvailabilityResponse computeAvailability(Long roomId, LocalDate date) {
+        // Occupancy index loads CONFIRMED and unexpired DRAFT bookings on a miss
+        OccupancyIndex.Occupancy occupancy = occupancyIndex.get(roomId, date);
+        List<SlotInfo> slots = generateSlots(date, occupancy);
 
-        // Add 30-minute cleanup buffer to booking end time
-        LocalTime bookingBlockingEnd = SlotRules.getBookingBlockingEnd(bookingEnd);
+        return new AvailabilityResponse(date, roomId, slots);
+    }
+
+    private List<BookingInterval> getBlockingBookings(Collection<Long> roomIds, LocalDate from, LocalDate to) {
+        List<BookingInterval> stored = bookingRepository.findActiveIntervalsInRange(roomIds, from, to,
+                LocalDateTime.now());
+        List<BookingInterval> held = holdRegistry.activeIntervalsInRange(roomIds, from, to);
+        if (held.isEmpty()) {
+            return stored;
+        }
+        List<BookingInterval> merged = new ArrayList<>(stored);
+        merged.addAll(held);
+        return merged;
+    }
 
-        // Overlap definition: slotStart < bookingBlockingEnd AND slotEnd > bookingStart
-        return slotStart.isBefore(bookingBlockingEnd) && slotEnd.isAfter(bookingStart);
+    private Map<Long, Map<LocalDate, List<BookingInterval>>> groupByRoomAndDate(List<BookingInterval> bookings) {
+        Map<Long, Map<LocalDate, List<BookingInterval>>> grouped = new HashMap<>();
+        for (BookingInterval booking : bookings) {
+            grouped.computeIfAbsent(booking.roomId(), id -> new HashMap<>())
+                    .computeIfAbsent(booking.bookingDate(), date -> new ArrayList<>())
+                    .add(booking);
+        }
+        return grouped;
+    }
+
+    private List<SlotInfo> generateSlots(LocalDate date, OccupancyIndex.Occupancy occupancy) {
+        List<ScheduleEngine.Slot> schedule = scheduleEngine.slotsFor(date);
+        List<SlotInfo> slots = new ArrayList<>(schedule.size());
+
+        for (ScheduleEngine.Slot slot : schedule) {
+            LocalTime slotStart = slot.startTime();
+            LocalTime slotEnd = slot.endTime();
+            boolean free = occupancy.isFree(occupancyIndex.firstBucket(slotStart),
+                    occupancyIndex.blockingEndBucket(slotEnd));
+            SlotStatus status = free ? SlotStatus.AVAILABLE : SlotStatus.UNAVAILABLE;
+
+            slots.add(new SlotInfo(slotStart, slotEnd, status, slot.priceCents()));
+        }
+
+        return slots;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counter per (roomId, date), used as the availability ETag. Every
+ * committed booking change on the room-day bumps it, and so does the lapse
+ * of each DRAFT hold seen through those changes, since availability changes
+ * then without a write.
+ *
+ * Counters live in memory only and see only the changes committed on this
+ * instance, so the tags assume a single instance serves availability: behind
+ * a load balancer a change made through another instance leaves this one
+ * answering 304 for the old state. The random nonce in the tag, drawn at
+ * boot and again when the slot schedule changes, keeps tags from another
+ * instance or an earlier schedule from ever matching.
+ *
+ * At most {@code max-size} room-days are tracked. Counters are drawn from
+ * one clock, and a room-day that is not tracked reports the clock value
+ * taken at the last trim, so a dropped counter never repeats a tag that
+ * was handed out before.
+ */
+@Component
+public class AvailabilityVersions {
+
+    private final SecureRandom random = new SecureRandom();
+    private volatile String nonce = Long.toHexString(random.nextLong());
+    private final Map<RoomDay, Version> versions = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private volatile long untracked;
+    private final int maxSize;
+
+    public AvailabilityVersions(@Value("${app.availability.versions.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Strong ETag for the current state of the room-day. Read it before
+     * computing the body, so that a change racing with the read can only
+     * make the tag older than the body, never newer.
+     */
+    public String etag(Long roomId, LocalDate date) {
+        long now = System.currentTimeMillis();
+        Version version = versions.computeIfPresent(new RoomDay(roomId, date),
+                (key, current) -> current.hasLapsed(now)
+                        ? new Version(clock.incrementAndGet(), current.pendingAt(now))
+                        : current);
+        long counter = version == null ? untracked : version.counter;
+        return "\"" + nonce + "-" + counter + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        long now = System.currentTimeMillis();
+        long[] expiry = event.status() == BookingStatus.DRAFT && event.expiresAt() != null
+                ? new long[] {event.expiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()}
+                : new long[0];
+
+        versions.merge(event.roomDay(), new Version(clock.incrementAndGet(), expiry),
+                (current, added) -> new Version(added.counter, current.pendingAt(now, added.expiries)));
+        trimToSize();
+    }
+
+    /**
+     * Slot times or prices changed, so every tag handed out so far is stale.
+     */
+    @EventListener
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        nonce = Long.toHexString(random.nextLong());
+    }
+
+    private void trimToSize() {
+        if (versions.size() <= maxSize) {
+            return;
+        }
+        // Move the untracked value on before any counter is dropped, so that a
+        // dropped room-day can never report a value it reported before.
+        untracked = clock.incrementAndGet();
+
+        // Down to three quarters, so that trims, which change every untracked
+        // tag, stay rare; room-days still waiting on a hold go last
+        int target = maxSize - maxSize / 4;
+        versions.values().removeIf(version -> versions.size() > target && version.expiries.length == 0);
+        Iterator<RoomDay> keys = versions.keySet().iterator();
+        while (versions.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * @param expiries epoch millis, ascending, of the DRAFT holds on the
+     *                 room-day whose lapse has not yet bumped the counter
+     */
+    private record Version(long counter, long[] expiries) {
+
+        boolean hasLapsed(long nowMillis) {
+            return expiries.length > 0 && nowMillis >= expiries[0];
+        }
+
+        /**
+         * The expiries still ahead of {@code nowMillis}, plus {@code added}.
+         */
+        long[] pendingAt(long nowMillis, long... added) {
+            long[] pending = Arrays.stream(expiries).filter(expiry -> expiry > nowMillis).toArray();
+            long[] merged = Arrays.copyOf(pending, pending.length + added.length);
+            System.arraycopy(added, 0, merged, pending.length, added.length);
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Published whenever a booking is created or changes state. Listeners that
+ * keep derived availability state react to it after the transaction commits.
+ */
+public record BookingChangedEvent(
+        Long roomId,
+        LocalDate date,
+        LocalTime startTime,
+        LocalTime endTime,
+        BookingStatus status,
+        LocalDateTime expiresAt) {
+
+    public static BookingChangedEvent of(Booking booking) {
+        return new BookingChangedEvent(booking.getRoom().getId(), booking.getBookingDate(),
+                booking.getStartTime(), booking.getEndTime(), booking.getStatus(), booking.getExpiresAt());
+    }
+
+    /**
+     * The booking no longer occupies its current room, date and time, e.g.
+     * because it is about to be rescheduled elsewhere.
+     */
+    public static BookingChangedEvent released(Booking booking) {
+        return new BookingChangedEvent(booking.getRoom().getId(), booking.getBookingDate(),
+                booking.getStartTime(), booking.getEndTime(), BookingStatus.CANCELLED, null);
+    }
+
+    public RoomDay roomDay() {
+        return new RoomDay(roomId, date);
+    }
+}
@@ -1,46 +1,76 @@
 package ee.futu.booking.service;
 
-import ee.futu.booking.domain.booking.Booking;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Holds are normally cancelled on time by {@link HoldExpiryQueue}; the
+ * sweep here runs rarely, every {@code app.booking.expiry.sweep-interval-ms},
+ * and only picks up what it missed. It covers every temporary status in
+ * one pass and runs on one instance of the cluster at a time, under a
+ * {@link SchedulerLease}.
+ */
 @Service
 public class BookingExpirationScheduler {
 
+    static final String SWEEP_JOB = "booking-expiry";
+
+    private static final List<BookingStatus> TEMPORARY_STATUSES =
+            List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT);
+
     private final BookingRepository bookingRepository;
+    private final ExpiredBookingSweep expiredBookingSweep;
+    private final SchedulerLease schedulerLease;
 
-    public BookingExpirationScheduler(BookingRepository bookingRepository) {
+    private final Counter sweptBookings;
+    private final Timer sweepDuration;
+    private volatile double backlogAgeSeconds;
+
+    public BookingExpirationScheduler(BookingRepository bookingRepository, ExpiredBookingSweep expiredBookingSweep,
+            SchedulerLease schedulerLease, MeterRegistry meterRegistry) {
         this.bookingRepository = bookingRepository;
+        this.expiredBookingSweep = expiredBookingSweep;
+        this.schedulerLease = schedulerLease;
+        this.sweptBookings = Counter.builder("booking.expiry.cancelled").tag("source", "sweep")
+                .register(meterRegistry);
+        this.sweepDuration = Timer.builder("booking.expiry.sweep.duration").register(meterRegistry);
+        Gauge.builder("booking.expiry.backlog.age", this, scheduler -> scheduler.backlogAgeSeconds)
+                .description("How long the oldest hold found lapsed by the last sweep had been overdue")
+                .baseUnit("seconds")
+                .register(meterRegistry);
     }
 
-    @Scheduled(fixedDelay = 60000) // Every minute
-    public void cancelExpiredDrafts() {
-        List<Booking> expiredDrafts = bookingRepository.findExpiredDrafts(BookingStatus.DRAFT, LocalDateTime.now());
-
-        if (!expiredDrafts.isEmpty()) {
-            List<Long> expiredIds = expiredDrafts.stream()
-                    .map(Booking::getId)
-                    .toList();
-            bookingRepository.updateStatusByIds(expiredIds, BookingStatus.CANCELLED);
-        }
+    @Scheduled(fixedDelayString = "${app.booking.expiry.sweep-interval-ms:600000}")
+    public void cancelExpiredHolds() {
+        schedulerLease.runIfLeader(SWEEP_JOB, lease -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime oldest = bookingRepository.findOldestLapsedExpiry(now);
+            backlogAgeSeconds = oldest == null ? 0 : Duration.between(oldest, now).toMillis() / 1000.0;
+            int cancelled = sweepDuration.record(() -> expiredBookingSweep.cancelExpired(TEMPORARY_STATUSES, now,
+                    lease));
+            sweptBookings.increment(cancelled);
+        });
     }
 
-    @Scheduled(fixedDelay = 60000) // Every minute
-    public void cancelExpiredTemporaryBookings() {
-        List<BookingStatus> temporaryStatuses = List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT);
-        List<Booking> expiredBookings = bookingRepository.findExpiredTemporaryBookings(temporaryStatuses,
-                LocalDateTime.now());
-
-        if (!expiredBookings.isEmpty()) {
-            List<Long> expiredIds = expiredBookings.stream()
-                    .map(Booking::getId)
-                    .toList();
-            bookingRepository.updateStatusByIds(expiredIds, BookingStatus.CANCELLED);
-        }
+    /**
+     * Cancels the lapsed DRAFT and PENDING_PAYMENT bookings on the room-days.
+     * The status and expiry are checked in the same statement that cancels,
+     * so a booking confirmed in the meantime is left alone.
+     *
+     * @return the number of bookings cancelled
+     */
+    public int cancelExpiredOn(Collection<RoomDay> roomDays) {
+        return expiredBookingSweep.cancelExpiredOn(TEMPORARY_STATUSES, roomDays, LocalDateTime.now());
     }
 }
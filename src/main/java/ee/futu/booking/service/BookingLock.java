@@ -0,0 +1,41 @@
+package ee.futu.booking.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Serializes the check-then-write booking paths per (roomId, date). A lock
+ * is taken inside the caller's transaction and held until it completes, so
+ * the conflict check and the insert it guards commit as one step. Writes
+ * for other room-days are not blocked.
+ *
+ * Selected with {@code app.booking.lock.type}: {@code striped} (default,
+ * single node) or {@code advisory} (PostgreSQL, any number of nodes).
+ */
+public interface BookingLock {
+
+    /**
+     * Blocks until the room-day is locked for the current transaction.
+     *
+     * @throws org.springframework.web.server.ResponseStatusException 503 BOOKING_LOCK_TIMEOUT
+     *         when the lock is not acquired within {@code app.booking.lock.timeout}
+     */
+    void lock(Long roomId, LocalDate date);
+
+    /**
+     * Locks every given room-day for the current transaction, in an order
+     * that is the same for every caller, so that two transactions locking
+     * overlapping sets cannot each hold what the other waits for. Where
+     * each room-day has a lock of its own, that is (roomId, date) order.
+     *
+     * @throws org.springframework.web.server.ResponseStatusException 503 BOOKING_LOCK_TIMEOUT
+     *         when a lock is not acquired within {@code app.booking.lock.timeout}
+     */
+    default void lockAll(Collection<RoomDay> roomDays) {
+        roomDays.stream()
+                .distinct()
+                .sorted(Comparator.comparing(RoomDay::roomId).thenComparing(RoomDay::date))
+                .forEach(roomDay -> lock(roomDay.roomId(), roomDay.date()));
+    }
+}
@@ -1,6 +1,7 @@
 package ee.futu.booking.service;
 
 import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingInterval;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
 import ee.futu.booking.domain.room.Room;
@@ -8,8 +9,11 @@ import ee.futu.booking.domain.room.RoomRepository;
 import ee.futu.booking.web.BookingRequest;
 import ee.futu.booking.web.BookingResponse;
 import ee.futu.booking.web.ConfirmRequest;
+import ee.futu.booking.web.HoldBatchResponse;
 import ee.futu.booking.web.HoldRequest;
 import ee.futu.booking.web.RescheduleRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -17,8 +21,14 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.*;
@@ -26,12 +36,36 @@ import static org.springframework.http.HttpStatus.*;
 @Service
 public class BookingService {
 
+    private static final Comparator<RoomDay> ROOM_DAY_ORDER = Comparator.comparing(RoomDay::roomId)
+            .thenComparing(RoomDay::date);
+    private static final List<BookingStatus> TEMPORARY_STATUSES =
+            List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT);
+    private static final Comparator<Booking> BOOKING_ORDER = Comparator
+            .comparing((Booking booking) -> booking.getRoom().getId())
+            .thenComparing(Booking::getBookingDate)
+            .thenComparing(Booking::getStartTime);
+
     private final BookingRepository bookingRepository;
     private final RoomRepository roomRepository;
-
-    public BookingService(BookingRepository bookingRepository, RoomRepository roomRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduleEngine scheduleEngine;
+    private final BookingLock bookingLock;
+    private final OverlapEnforcement overlapEnforcement;
+    private final HoldRegistry holdRegistry;
+    private final ExpiredBookingSweep expiredBookingSweep;
+
+    public BookingService(BookingRepository bookingRepository, RoomRepository roomRepository,
+            ApplicationEventPublisher eventPublisher, ScheduleEngine scheduleEngine, BookingLock bookingLock,
+            OverlapEnforcement overlapEnforcement, HoldRegistry holdRegistry,
+            ExpiredBookingSweep expiredBookingSweep) {
         this.bookingRepository = bookingRepository;
         this.roomRepository = roomRepository;
+        this.eventPublisher = eventPublisher;
+        this.scheduleEngine = scheduleEngine;
+        this.bookingLock = bookingLock;
+        this.overlapEnforcement = overlapEnforcement;
+        this.holdRegistry = holdRegistry;
+        this.expiredBookingSweep = expiredBookingSweep;
     }
 
     @Transactional
@@ -40,17 +74,13 @@ public class BookingService {
         Room room = roomRepository.findById(request.getRoomId())
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Room not found"));
 
-        // Validate slot time
-        validateSlotTime(request.getDate(), request.getStartTime());
-
-        // Compute endTime and price
-        LocalTime endTime = SlotRules.getEndTime(request.getStartTime());
-        int priceCents = SlotRules.priceCentsFor(request.getDate());
+        // Validate slot time; the slot gives endTime and price
+        ScheduleEngine.Slot slot = validateSlotTime(request.getDate(), request.getStartTime());
+        LocalTime endTime = slot.endTime();
+        int priceCents = slot.priceCents();
 
         // Check for conflicts
-        if (hasConflict(request.getRoomId(), request.getDate(), request.getStartTime(), endTime)) {
-            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
-        }
+        prepareSlot(null, request.getRoomId(), request.getDate(), request.getStartTime(), endTime);
 
         // Create booking
         Booking booking = new Booking();
@@ -64,13 +94,22 @@ public class BookingService {
         booking.setCustomerEmail(request.getCustomerEmail());
         booking.setCustomerPhone(request.getCustomerPhone());
 
-        booking = bookingRepository.save(booking);
+        booking = write(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
 
         return mapToResponse(booking);
     }
 
     @Transactional
+    @RetryOnOptimisticLock
     public void cancelBooking(Long bookingId) {
+        Optional<HoldRegistry.Hold> hold = holdRegistry.find(bookingId);
+        if (hold.isPresent()) {
+            holdRegistry.remove(bookingId);
+            eventPublisher.publishEvent(hold.get().toEvent(BookingStatus.CANCELLED));
+            return;
+        }
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Booking not found"));
 
@@ -81,10 +120,16 @@ public class BookingService {
 
         booking.setStatus(BookingStatus.CANCELLED);
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
     }
 
     @Transactional
+    @RetryOnOptimisticLock
     public BookingResponse rescheduleBooking(Long bookingId, RescheduleRequest request) {
+        if (holdRegistry.find(bookingId).isPresent()) {
+            throw new ResponseStatusException(BAD_REQUEST, "BOOKING_NOT_RESCHEDULABLE");
+        }
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Booking not found"));
 
@@ -93,32 +138,35 @@ public class BookingService {
             throw new ResponseStatusException(BAD_REQUEST, "BOOKING_NOT_RESCHEDULABLE");
         }
 
-        // Validate new slot time
-        validateSlotTime(request.getDate(), request.getStartTime());
-
-        // Compute new endTime and price
-        LocalTime newEndTime = SlotRules.getEndTime(request.getStartTime());
-        int newPriceCents = SlotRules.priceCentsFor(request.getDate());
+        // Validate new slot time; the slot gives the new endTime and price
+        ScheduleEngine.Slot slot = validateSlotTime(request.getDate(), request.getStartTime());
+        LocalTime newEndTime = slot.endTime();
+        int newPriceCents = slot.priceCents();
 
         // Check for conflicts (exclude current booking)
-        if (hasConflictExcluding(booking.getId(), booking.getRoom().getId(), request.getDate(), request.getStartTime(),
-                newEndTime)) {
-            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
-        }
+        prepareSlot(booking.getId(), booking.getRoom().getId(), request.getDate(), request.getStartTime(), newEndTime);
 
-        // Update booking
+        // Update booking, remembering the room-day it is released from
+        BookingChangedEvent released = BookingChangedEvent.released(booking);
         booking.setBookingDate(request.getDate());
         booking.setStartTime(request.getStartTime());
         booking.setEndTime(newEndTime);
         booking.setTotalPriceCents(newPriceCents);
 
-        booking = bookingRepository.save(booking);
+        booking = write(booking);
+        eventPublisher.publishEvent(released);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
 
         return mapToResponse(booking);
     }
 
     @Transactional
     public BookingResponse getBooking(Long id) {
+        Optional<HoldRegistry.Hold> hold = holdRegistry.find(id);
+        if (hold.isPresent()) {
+            return mapToResponse(hold.get());
+        }
+
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Booking not found"));
         return mapToResponse(booking);
@@ -133,10 +181,18 @@ public class BookingService {
         // Fetch all bookings for room and date (includes all statuses)
         List<Booking> bookings = bookingRepository.findByRoomIdAndBookingDateOrderByStartTime(roomId, date);
 
-        // Map to response DTOs
-        return bookings.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        // Map to response DTOs, merging in holds kept in memory
+        List<HoldRegistry.Hold> holds = holdRegistry.activeHolds(roomId, date);
+        if (holds.isEmpty()) {
+            return bookings.stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.toList());
+        }
+        List<BookingResponse> responses = new ArrayList<>(bookings.size() + holds.size());
+        bookings.forEach(booking -> responses.add(mapToResponse(booking)));
+        holds.forEach(hold -> responses.add(mapToResponse(hold)));
+        responses.sort(Comparator.comparing(BookingResponse::getStartTime));
+        return responses;
     }
 
     @Transactional
@@ -145,16 +201,20 @@ public class BookingService {
         Room room = roomRepository.findById(request.getRoomId())
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Room not found"));
 
-        // Validate slot time
-        validateSlotTime(request.getDate(), request.getStartTime());
-
-        // Compute endTime and price
-        LocalTime endTime = SlotRules.getEndTime(request.getStartTime());
-        int priceCents = SlotRules.priceCentsFor(request.getDate());
+        // Validate slot time; the slot gives endTime and price
+        ScheduleEngine.Slot slot = validateSlotTime(request.getDate(), request.getStartTime());
+        LocalTime endTime = slot.endTime();
+        int priceCents = slot.priceCents();
 
         // Check for conflicts with active bookings
-        if (hasConflictWithActiveBookings(request.getRoomId(), request.getDate(), request.getStartTime(), endTime)) {
-            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
+        prepareSlot(null, request.getRoomId(), request.getDate(), request.getStartTime(), endTime);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        if (holdRegistry.isEnabled()) {
+            HoldRegistry.Hold hold = holdRegistry.add(room.getId(), request.getDate(), request.getStartTime(),
+                    endTime, priceCents, expiresAt);
+            eventPublisher.publishEvent(hold.toEvent(BookingStatus.DRAFT));
+            return mapToResponse(hold);
         }
 
         // Create hold booking
@@ -165,15 +225,95 @@ public class BookingService {
         booking.setEndTime(endTime);
         booking.setStatus(BookingStatus.DRAFT);
         booking.setTotalPriceCents(priceCents);
-        booking.setExpiresAt(LocalDateTime.now().plusMinutes(15));
+        booking.setExpiresAt(expiresAt);
 
-        booking = bookingRepository.save(booking);
+        booking = write(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
 
         return mapToResponse(booking);
     }
 
+    /**
+     * Holds several slots at once, all or nothing: one room lookup, one
+     * conflict read and one batched insert for the lot. The room-days are
+     * locked together through {@link BookingLock#lockAll}, which orders what
+     * it actually locks (stripes or advisory keys) the same way for every
+     * batch, and rows are inserted in (roomId, date, startTime) order, so
+     * concurrent batches wait for each other rather than deadlock.
+     */
+    @Transactional
+    public HoldBatchResponse holdBookings(List<HoldRequest> requests) {
+        Map<Long, Room> rooms = roomRepository.findAllById(
+                requests.stream().map(HoldRequest::getRoomId).distinct().toList())
+                .stream().collect(Collectors.toMap(Room::getId, Function.identity()));
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        List<Booking> bookings = new ArrayList<>(requests.size());
+        for (HoldRequest request : requests) {
+            Room room = rooms.get(request.getRoomId());
+            if (room == null) {
+                throw new ResponseStatusException(NOT_FOUND, "Room not found");
+            }
+            ScheduleEngine.Slot slot = validateSlotTime(request.getDate(), request.getStartTime());
+
+            Booking booking = new Booking();
+            booking.setRoom(room);
+            booking.setBookingDate(request.getDate());
+            booking.setStartTime(slot.startTime());
+            booking.setEndTime(slot.endTime());
+            booking.setStatus(BookingStatus.DRAFT);
+            booking.setTotalPriceCents(slot.priceCents());
+            booking.setExpiresAt(expiresAt);
+            bookings.add(booking);
+        }
+        bookings.sort(BOOKING_ORDER);
+
+        // The requested slots must not overlap each other either
+        for (int i = 1; i < bookings.size(); i++) {
+            Booking previous = bookings.get(i - 1);
+            Booking current = bookings.get(i);
+            if (previous.getRoom().getId().equals(current.getRoom().getId())
+                    && previous.getBookingDate().equals(current.getBookingDate())
+                    && SlotRules.overlaps(previous.getStartTime(), previous.getEndTime(),
+                            current.getStartTime(), current.getEndTime())) {
+                throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
+            }
+        }
+
+        prepareSlots(bookings);
+
+        if (holdRegistry.isEnabled()) {
+            List<BookingResponse> responses = new ArrayList<>(bookings.size());
+            int totalPriceCents = 0;
+            for (Booking booking : bookings) {
+                HoldRegistry.Hold hold = holdRegistry.add(booking.getRoom().getId(), booking.getBookingDate(),
+                        booking.getStartTime(), booking.getEndTime(), booking.getTotalPriceCents(), expiresAt);
+                eventPublisher.publishEvent(hold.toEvent(BookingStatus.DRAFT));
+                responses.add(mapToResponse(hold));
+                totalPriceCents += hold.priceCents();
+            }
+            return new HoldBatchResponse(responses, totalPriceCents);
+        }
+
+        try {
+            bookings = bookingRepository.saveAll(bookings);
+            bookingRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
+        }
+        bookings.forEach(booking -> eventPublisher.publishEvent(BookingChangedEvent.of(booking)));
+
+        List<BookingResponse> responses = bookings.stream().map(this::mapToResponse).toList();
+        int totalPriceCents = bookings.stream().mapToInt(Booking::getTotalPriceCents).sum();
+        return new HoldBatchResponse(responses, totalPriceCents);
+    }
+
     @Transactional
+    @RetryOnOptimisticLock
     public BookingResponse confirmBooking(Long bookingId, ConfirmRequest request) {
+        // A hold kept in memory becomes a row now; the slot is already its own
+        holdRegistry.persist(bookingId);
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Booking not found"));
 
@@ -191,67 +331,125 @@ public class BookingService {
         // Keep expiresAt for audit
 
         booking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
 
         return mapToResponse(booking);
     }
 
-    void cancelExpiredDrafts() {
-        List<Booking> expiredDrafts = bookingRepository.findExpiredDrafts(
-                BookingStatus.DRAFT, LocalDateTime.now());
+    /**
+     * Clears the way for a booking on [startTime, endTime) of the room-day,
+     * or fails with 409 BOOKING_OVERLAP. Lapsed DRAFT and PENDING_PAYMENT
+     * rows still carry a blocking status until the expiry sweep runs, so
+     * they are settled first, announced like the sweep's own. Where the exclusion constraint exists that is
+     * all: the write itself is the check. Elsewhere the room-day is locked
+     * and checked here with the constraint's rule.
+     */
+    private void prepareSlot(Long excludeBookingId, Long roomId, LocalDate date, LocalTime startTime,
+            LocalTime endTime) {
+        boolean checkHere = checksOverlapInApplication();
+        if (checkHere) {
+            bookingLock.lock(roomId, date);
+        }
 
-        if (!expiredDrafts.isEmpty()) {
-            List<Long> expiredIds = expiredDrafts.stream()
-                    .map(Booking::getId)
-                    .collect(Collectors.toList());
+        expiredBookingSweep.cancelExpiredOn(TEMPORARY_STATUSES, List.of(new RoomDay(roomId, date)),
+                LocalDateTime.now());
 
-            bookingRepository.updateStatusByIds(expiredIds, BookingStatus.CANCELLED);
+        if (checkHere && hasOverlap(excludeBookingId, roomId, date, startTime, endTime)) {
+            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
         }
     }
 
-    private void validateSlotTime(LocalDate date, LocalTime startTime) {
-        List<SlotRules.SlotDef> allowedSlots = SlotRules.allowedSlotsFor(date);
+    /**
+     * {@link #prepareSlot} for a whole batch of new bookings, sorted by
+     * {@link #BOOKING_ORDER}, with one bulk settle and one bulk conflict read
+     * over the rooms and dates involved.
+     */
+    private void prepareSlots(List<Booking> bookings) {
+        Set<RoomDay> roomDays = new TreeSet<>(ROOM_DAY_ORDER);
+        bookings.forEach(booking -> roomDays.add(new RoomDay(booking.getRoom().getId(), booking.getBookingDate())));
+        List<Long> roomIds = roomDays.stream().map(RoomDay::roomId).distinct().toList();
+        LocalDate from = roomDays.stream().map(RoomDay::date).min(LocalDate::compareTo).orElseThrow();
+        LocalDate to = roomDays.stream().map(RoomDay::date).max(LocalDate::compareTo).orElseThrow();
+
+        boolean checkHere = checksOverlapInApplication();
+        if (checkHere) {
+            bookingLock.lockAll(roomDays);
+        }
 
-        boolean isValidSlot = allowedSlots.stream()
-                .anyMatch(slot -> slot.getStartTime().equals(startTime));
+        expiredBookingSweep.cancelExpiredOn(TEMPORARY_STATUSES, roomDays, LocalDateTime.now());
 
-        if (!isValidSlot) {
-            throw new ResponseStatusException(BAD_REQUEST, "Invalid slot time");
+        if (!checkHere) {
+            return;
+        }
+        List<BookingInterval> blockingBookings = new ArrayList<>(
+                bookingRepository.findBlockingIntervalsInRange(roomIds, from, to));
+        blockingBookings.addAll(holdRegistry.activeIntervalsInRange(roomIds, from, to));
+        for (Booking booking : bookings) {
+            for (BookingInterval existing : blockingBookings) {
+                if (existing.roomId().equals(booking.getRoom().getId())
+                        && existing.bookingDate().equals(booking.getBookingDate())
+                        && overlaps(booking.getStartTime(), booking.getEndTime(), existing)) {
+                    throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
+                }
+            }
         }
     }
 
-    private boolean hasConflict(Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime) {
-        List<Booking> existingBookings = bookingRepository.findByRoomIdAndBookingDateAndStatusIn(
-                roomId, date, Arrays.asList(BookingStatus.CONFIRMED));
+    /**
+     * The exclusion constraint cannot see holds kept in memory, so with the
+     * hold registry on every write is locked and checked here as well.
+     */
+    private boolean checksOverlapInApplication() {
+        return !overlapEnforcement.isDatabaseEnforced() || holdRegistry.isEnabled();
+    }
 
-        return existingBookings.stream()
-                .anyMatch(booking -> hasOverlap(startTime, endTime, booking));
+    private Booking write(Booking booking) {
+        try {
+            Booking saved = bookingRepository.save(booking);
+            // Flush now so a violated exclusion constraint surfaces here and not at commit
+            bookingRepository.flush();
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(CONFLICT, "BOOKING_OVERLAP");
+        }
     }
 
-    private boolean hasConflictExcluding(Long excludeBookingId, Long roomId, LocalDate date, LocalTime startTime,
-            LocalTime endTime) {
-        List<Booking> existingBookings = bookingRepository.findByRoomIdAndBookingDateAndStatusIn(
-                roomId, date, Arrays.asList(BookingStatus.CONFIRMED));
+    private ScheduleEngine.Slot validateSlotTime(LocalDate date, LocalTime startTime) {
+        ScheduleEngine.Slot slot = scheduleEngine.slotAt(date, startTime);
 
-        return existingBookings.stream()
-                .filter(booking -> !booking.getId().equals(excludeBookingId))
-                .anyMatch(booking -> hasOverlap(startTime, endTime, booking));
+        if (slot == null) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid slot time");
+        }
+        return slot;
     }
 
-    private boolean hasConflictWithActiveBookings(Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime) {
-        List<Booking> activeBookings = bookingRepository.findActiveBookings(
-                roomId, date, BookingStatus.CONFIRMED, BookingStatus.DRAFT, LocalDateTime.now());
+    private boolean hasOverlap(Long excludeBookingId, Long roomId, LocalDate date, LocalTime startTime,
+            LocalTime endTime) {
+        List<BookingInterval> blockingBookings = new ArrayList<>(bookingRepository.findBlockingIntervals(roomId, date));
+        blockingBookings.addAll(holdRegistry.activeIntervals(roomId, date));
 
-        return activeBookings.stream()
-                .anyMatch(booking -> hasOverlap(startTime, endTime, booking));
+        for (BookingInterval existing : blockingBookings) {
+            if (!existing.id().equals(excludeBookingId) && overlaps(startTime, endTime, existing)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private boolean hasOverlap(LocalTime newStart, LocalTime newEnd, Booking existingBooking) {
-        LocalTime existingStart = existingBooking.getStartTime();
-        LocalTime existingEnd = existingBooking.getEndTime();
-        LocalTime existingBlockingEnd = SlotRules.getBookingBlockingEnd(existingEnd);
+    private boolean overlaps(LocalTime newStart, LocalTime newEnd, BookingInterval existingBooking) {
+        return SlotRules.overlaps(newStart, newEnd, existingBooking.startTime(), existingBooking.endTime());
+    }
 
-        // Overlap definition: newStart < existingBlockingEnd AND newEnd > existingStart
-        return newStart.isBefore(existingBlockingEnd) && newEnd.isAfter(existingStart);
+    private BookingResponse mapToResponse(HoldRegistry.Hold hold) {
+        BookingResponse response = new BookingResponse();
+        response.setId(hold.id());
+        response.setStatus(BookingStatus.DRAFT.name());
+        response.setDate(hold.date());
+        response.setStartTime(hold.startTime());
+        response.setEndTime(hold.endTime());
+        response.setPriceCents(hold.priceCents());
+        response.setExpiresAt(hold.expiresAt());
+        return response;
     }
 
     public BookingResponse mapToResponse(Booking booking) {
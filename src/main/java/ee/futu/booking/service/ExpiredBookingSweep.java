@@ -0,0 +1,166 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cancels lapsed temporary bookings set-based, in chunks of
+ * {@code chunk-size} rows, without loading entities. Each chunk is one
+ * statement that updates the rows and returns their room-day and times,
+ * committed on its own, so memory and lock time stay bounded however large
+ * the backlog is. On PostgreSQL the chunk is picked with SKIP LOCKED, so a
+ * sweep never waits on a booking a request is changing.
+ */
+@Component
+public class ExpiredBookingSweep {
+
+    private static final RowMapper<BookingChangedEvent> CANCELLED = (rs, i) -> new BookingChangedEvent(
+            rs.getLong("room_id"), rs.getObject("booking_date", LocalDate.class),
+            rs.getObject("start_time", LocalTime.class), rs.getObject("end_time", LocalTime.class),
+            BookingStatus.CANCELLED, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final boolean postgreSql;
+
+    public ExpiredBookingSweep(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.booking.expiry.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.postgreSql = isPostgreSql(jdbcTemplate);
+    }
+
+    /**
+     * Cancels every booking in one of {@code statuses} whose hold lapsed by
+     * {@code now}, chunk by chunk until none is left, and publishes a
+     * CANCELLED event for each.
+     *
+     * @return the number of bookings cancelled
+     */
+    public int cancelExpired(Collection<BookingStatus> statuses, LocalDateTime now) {
+        return cancelExpired(statuses, now, null);
+    }
+
+    /**
+     * As {@link #cancelExpired(Collection, LocalDateTime)}, but every chunk
+     * is fenced by {@code lease}: once another instance has taken the lease
+     * over, the remaining chunks cancel nothing.
+     */
+    public int cancelExpired(Collection<BookingStatus> statuses, LocalDateTime now, SchedulerLease.Lease lease) {
+        if (lease == null) {
+            return cancel(statuses, now, "", List.of());
+        }
+        return cancel(statuses, now, "AND EXISTS (SELECT 1 FROM scheduler_lock WHERE name = ? AND fencing_token = ?)",
+                List.of(lease.name(), lease.fencingToken()));
+    }
+
+    /**
+     * As {@link #cancelExpired(Collection, LocalDateTime)}, restricted to
+     * the given room-days.
+     */
+    public int cancelExpiredOn(Collection<BookingStatus> statuses, Collection<RoomDay> roomDays, LocalDateTime now) {
+        if (roomDays.isEmpty()) {
+            return 0;
+        }
+        String filter = roomDays.stream().map(roomDay -> "(?, ?)")
+                .collect(Collectors.joining(", ", "AND (room_id, booking_date) IN (", ")"));
+        List<Object> args = roomDays.stream()
+                .flatMap(roomDay -> Stream.<Object>of(roomDay.roomId(), roomDay.date()))
+                .toList();
+        return cancel(statuses, now, filter, args);
+    }
+
+    private int cancel(Collection<BookingStatus> statuses, LocalDateTime now, String filter, List<Object> filterArgs) {
+        String sql = postgreSql ? postgreSqlChunk(statuses, filter) : h2Chunk(statuses, filter);
+        List<Object> args = new ArrayList<>();
+        args.add(now);
+        args.addAll(filterArgs);
+        args.add(chunkSize);
+        if (!postgreSql) {
+            args.add(now);
+        }
+        int total = 0;
+        int cancelled;
+        do {
+            cancelled = transactionTemplate.execute(status -> {
+                List<BookingChangedEvent> events = jdbcTemplate.query(sql, CANCELLED, args.toArray());
+                events.forEach(eventPublisher::publishEvent);
+                return events.size();
+            });
+            total += cancelled;
+        } while (cancelled == chunkSize);
+        return total;
+    }
+
+    private static String postgreSqlChunk(Collection<BookingStatus> statuses, String fence) {
+        return """
+                WITH due AS (
+                    SELECT id FROM booking
+                    WHERE status IN (%s) AND expires_at <= ? %s
+                    ORDER BY expires_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                UPDATE booking b
+                SET status = 'CANCELLED', version = b.version + 1, updated_at = CURRENT_TIMESTAMP
+                FROM due
+                WHERE b.id = due.id
+                RETURNING b.room_id, b.booking_date, b.start_time, b.end_time
+                """.formatted(literals(statuses), fence);
+    }
+
+    private static String h2Chunk(Collection<BookingStatus> statuses, String fence) {
+        return """
+                SELECT room_id, booking_date, start_time, end_time FROM FINAL TABLE (
+                    UPDATE booking
+                    SET status = 'CANCELLED', version = version + 1, updated_at = CURRENT_TIMESTAMP
+                    WHERE id IN (
+                        SELECT id FROM booking
+                        WHERE status IN (%s) AND expires_at <= ? %s
+                        ORDER BY expires_at
+                        LIMIT ?
+                    )
+                    -- Without SKIP LOCKED the row may have moved on since it was picked
+                    AND status IN (%s) AND expires_at <= ?
+                )
+                """.formatted(literals(statuses), fence, literals(statuses));
+    }
+
+    // Inlined rather than bound, like the repository queries, so the planner can match partial indexes
+    private static String literals(Collection<BookingStatus> statuses) {
+        return statuses.stream().map(status -> "'" + status.name() + "'").collect(Collectors.joining(", "));
+    }
+
+    private static boolean isPostgreSql(JdbcTemplate jdbcTemplate) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not determine database product", e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingInterval;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels DRAFT and PENDING_PAYMENT bookings as their holds lapse, instead
+ * of waiting for the next sweep. Every committed change that sets an
+ * expiry queues its room-day for that moment; a single worker takes what is
+ * due, in batches of at most {@code batch-size} room-days, and cancels the
+ * lapsed temporary bookings on them. The queue is rebuilt from the table at
+ * startup, and the periodic sweep in {@link BookingExpirationScheduler}
+ * stays as a safety net for anything missed, e.g. changes made by another
+ * instance.
+ *
+ * Unlike the sweep, the queue runs on every instance and is not gated on
+ * the {@link SchedulerLease}. Booking events only reach the instance that
+ * committed them, so a queue on the lease holder alone would leave holds
+ * taken elsewhere to the sweep. Instances only overlap on the holds
+ * that were pending when each of them started, which they all load in
+ * {@link #rebuild}. Whichever instance gets there first cancels them. The
+ * status guard in the UPDATE makes the others' updates match no rows,
+ * so they publish nothing. The cost is one empty UPDATE per instance per
+ * room-day, and only for holds that were pending at a startup.
+ */
+@Component
+public class HoldExpiryQueue {
+
+    private final BookingRepository bookingRepository;
+    private final BookingExpirationScheduler expirationScheduler;
+    private final int batchSize;
+    private final long retryDelayMillis;
+
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+    private final Set<Due> queued = ConcurrentHashMap.newKeySet();
+    private final Counter cancelled;
+    private volatile Thread worker;
+
+    public HoldExpiryQueue(BookingRepository bookingRepository, BookingExpirationScheduler expirationScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${app.booking.expiry.batch-size:100}") int batchSize,
+            @Value("${app.booking.expiry.retry-delay:5s}") Duration retryDelay) {
+        this.bookingRepository = bookingRepository;
+        this.expirationScheduler = expirationScheduler;
+        this.batchSize = batchSize;
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.cancelled = Counter.builder("booking.expiry.cancelled").tag("source", "queue").register(meterRegistry);
+        Gauge.builder("booking.expiry.queue.size", queue, DelayQueue::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        Thread thread = new Thread(this::run, "hold-expiry");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if ((event.status() == BookingStatus.DRAFT || event.status() == BookingStatus.PENDING_PAYMENT)
+                && event.expiresAt() != null) {
+            schedule(event.roomDay(), event.expiresAt());
+        }
+    }
+
+    /**
+     * Queues every temporary booking still in the table; those already
+     * lapsed come due immediately.
+     */
+    int rebuild() {
+        List<BookingInterval> pending = bookingRepository.findPendingExpiries();
+        pending.forEach(interval -> schedule(new RoomDay(interval.roomId(), interval.bookingDate()),
+                interval.expiresAt()));
+        return pending.size();
+    }
+
+    /**
+     * Cancels the lapsed bookings of the room-days due now, without waiting.
+     *
+     * @return the number of bookings cancelled
+     */
+    int expireDue() {
+        List<Due> batch = new ArrayList<>();
+        queue.drainTo(batch, batchSize);
+        return expire(batch);
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            try {
+                List<Due> batch = new ArrayList<>();
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                expire(batch);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private int expire(List<Due> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.forEach(queued::remove);
+        Set<RoomDay> roomDays = new LinkedHashSet<>();
+        batch.forEach(due -> roomDays.add(due.roomDay()));
+        try {
+            int count = expirationScheduler.cancelExpiredOn(roomDays);
+            cancelled.increment(count);
+            return count;
+        } catch (RuntimeException e) {
+            // Try again shortly; the sweep still catches them if this keeps failing
+            long retryAt = System.currentTimeMillis() + retryDelayMillis;
+            roomDays.forEach(roomDay -> enqueue(new Due(roomDay, retryAt)));
+            return 0;
+        }
+    }
+
+    private void schedule(RoomDay roomDay, LocalDateTime expiresAt) {
+        enqueue(new Due(roomDay, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+
+    private void enqueue(Due due) {
+        if (queued.add(due)) {
+            queue.add(due);
+        }
+    }
+
+    private record Due(RoomDay roomDay, long atMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(atMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(atMillis, ((Due) other).atMillis);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingInterval;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DRAFT holds kept in memory instead of the booking table, for
+ * {@code app.booking.hold.mode=memory}. Most holds lapse unpaid, and in
+ * database mode each of those costs an insert and a later cancel. Here a
+ * hold is written to the table only when it is promoted by payment start or
+ * confirmation; until then it lives in this registry, which conflict checks
+ * and availability reads merge with the table.
+ *
+ * Every add and drop is appended to a local write-ahead file, replayed at
+ * startup so holds survive a restart. Holds are invisible to other
+ * instances, so this mode is for single-instance deployments only. Hold ids
+ * are drawn in blocks from {@code booking_seq}, so a promoted hold keeps its
+ * id. In database mode (the default) the registry is empty and inert.
+ */
+@Component
+public class HoldRegistry {
+
+    // Must match the increment of booking_seq: each value is the top of a block of ids
+    private static final int SEQUENCE_BLOCK = 50;
+
+    private final BookingRepository bookingRepository;
+    private final boolean enabled;
+    private final Path walPath;
+    private final DataFieldMaxValueIncrementer idSequence;
+
+    private final Map<Long, Hold> byId = new ConcurrentHashMap<>();
+    private final Map<RoomDay, Map<Long, Hold>> byRoomDay = new ConcurrentHashMap<>();
+    private final AtomicInteger appendedSinceCompaction = new AtomicInteger();
+    private final Object walLock = new Object();
+    private BufferedWriter wal;
+    private long nextId;
+    private long lastId = -1;
+
+    public HoldRegistry(BookingRepository bookingRepository, DataSource dataSource, MeterRegistry meterRegistry,
+            @Value("${app.booking.hold.mode:database}") String mode,
+            @Value("${app.booking.hold.wal-path:data/holds.wal}") Path walPath) {
+        this.bookingRepository = bookingRepository;
+        this.enabled = switch (mode) {
+            case "memory" -> true;
+            case "database" -> false;
+            default -> throw new IllegalArgumentException("Unknown app.booking.hold.mode: " + mode);
+        };
+        this.walPath = walPath;
+        this.idSequence = enabled ? sequence(dataSource) : null;
+        if (enabled) {
+            replay();
+        }
+        Gauge.builder("booking.hold.registry.size", byId, Map::size).register(meterRegistry);
+    }
+
+    private HoldRegistry() {
+        this.bookingRepository = null;
+        this.enabled = false;
+        this.walPath = null;
+        this.idSequence = null;
+    }
+
+    /**
+     * An inert registry, for code paths that run without one.
+     */
+    static HoldRegistry disabled() {
+        return new HoldRegistry();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Hold add(Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime, int priceCents,
+            LocalDateTime expiresAt) {
+        Hold hold = new Hold(nextId(), roomId, date, startTime, endTime, priceCents, expiresAt);
+        // Under the log lock, so a compaction cannot snapshot the map between the two and drop the record
+        synchronized (walLock) {
+            append(hold.toWalRecord());
+            put(hold);
+        }
+        return hold;
+    }
+
+    public Optional<Hold> find(Long id) {
+        Hold hold = byId.get(id);
+        return hold != null && hold.isActive(LocalDateTime.now()) ? Optional.of(hold) : Optional.empty();
+    }
+
+    public boolean remove(Long id) {
+        Hold hold = byId.remove(id);
+        if (hold == null) {
+            return false;
+        }
+        byRoomDay.computeIfPresent(hold.roomDay(), (key, holds) -> {
+            holds.remove(id);
+            return holds.isEmpty() ? null : holds;
+        });
+        append("DROP\t" + id);
+        return true;
+    }
+
+    /**
+     * Writes the hold to the booking table as a DRAFT row with its own id,
+     * so the caller can load and transition it like any stored booking. The
+     * hold leaves the registry once the surrounding transaction commits.
+     *
+     * @return false when no active hold has this id
+     */
+    public boolean persist(Long id) {
+        Optional<Hold> found = find(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Hold hold = found.get();
+        bookingRepository.insertDraft(hold.id(), hold.roomId(), hold.date(), hold.startTime(), hold.endTime(),
+                hold.priceCents(), hold.expiresAt());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(id);
+                }
+            });
+        } else {
+            remove(id);
+        }
+        return true;
+    }
+
+    /**
+     * Unexpired holds of the room-day, in the shape of the table's blocking
+     * intervals.
+     */
+    public List<BookingInterval> activeIntervals(Long roomId, LocalDate date) {
+        if (byId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return intervals(byRoomDay.get(new RoomDay(roomId, date)), LocalDateTime.now(), new ArrayList<>());
+    }
+
+    public List<BookingInterval> activeIntervalsInRange(Collection<Long> roomIds, LocalDate from, LocalDate to) {
+        if (byId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingInterval> intervals = new ArrayList<>();
+        for (Long roomId : roomIds) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                intervals(byRoomDay.get(new RoomDay(roomId, date)), now, intervals);
+            }
+        }
+        return intervals;
+    }
+
+    public List<Hold> activeHolds(Long roomId, LocalDate date) {
+        Map<Long, Hold> holds = byRoomDay.get(new RoomDay(roomId, date));
+        if (holds == null) {
+            return Collections.emptyList();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return holds.values().stream().filter(hold -> hold.isActive(now)).toList();
+    }
+
+    /**
+     * Forgets lapsed holds and compacts the write-ahead file to the live set.
+     */
+    @Scheduled(fixedDelayString = "${app.booking.hold.purge-interval-ms:60000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        purgeLapsed();
+        if (appendedSinceCompaction.get() > 0) {
+            compact();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        synchronized (walLock) {
+            if (wal != null) {
+                wal.close();
+                wal = null;
+            }
+        }
+    }
+
+    private void forget(Long id) {
+        Hold hold = byId.remove(id);
+        if (hold != null) {
+            byRoomDay.computeIfPresent(hold.roomDay(), (key, holds) -> {
+                holds.remove(id);
+                return holds.isEmpty() ? null : holds;
+            });
+        }
+    }
+
+    private void put(Hold hold) {
+        byId.put(hold.id(), hold);
+        byRoomDay.computeIfAbsent(hold.roomDay(), key -> new ConcurrentHashMap<>()).put(hold.id(), hold);
+    }
+
+    private List<BookingInterval> intervals(Map<Long, Hold> holds, LocalDateTime now, List<BookingInterval> into) {
+        if (holds != null) {
+            for (Hold hold : holds.values()) {
+                if (hold.isActive(now)) {
+                    into.add(hold.toInterval());
+                }
+            }
+        }
+        return into;
+    }
+
+    private synchronized long nextId() {
+        if (nextId > lastId) {
+            lastId = idSequence.nextLongValue();
+            nextId = lastId - SEQUENCE_BLOCK + 1;
+        }
+        return nextId++;
+    }
+
+    private void replay() {
+        try {
+            if (Files.exists(walPath)) {
+                List<String> lines = Files.readAllLines(walPath, StandardCharsets.UTF_8);
+                for (int i = 0; i < lines.size(); i++) {
+                    try {
+                        String[] fields = lines.get(i).split("\t");
+                        if (fields[0].equals("HOLD") && fields.length == 8) {
+                            put(Hold.fromWalRecord(fields));
+                        } else if (fields[0].equals("DROP") && fields.length == 2) {
+                            forget(Long.valueOf(fields[1]));
+                        }
+                        // Anything else is a torn final line from a crash
+                    } catch (RuntimeException e) {
+                        // So is a final line cut inside its last field; earlier lines were written whole
+                        if (i < lines.size() - 1) {
+                            throw new IllegalStateException("Corrupt hold log " + walPath + " at line " + (i + 1), e);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay hold log " + walPath, e);
+        }
+        // Holds promoted just before a crash may already be rows in the table
+        byId.keySet().stream().filter(bookingRepository::existsById).toList().forEach(this::forget);
+        purgeLapsed();
+        compact();
+    }
+
+    private void purgeLapsed() {
+        LocalDateTime now = LocalDateTime.now();
+        byId.values().stream().filter(hold -> !hold.isActive(now)).map(Hold::id).toList().forEach(this::forget);
+    }
+
+    private void compact() {
+        synchronized (walLock) {
+            try {
+                Path parent = walPath.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                Path compacted = Files.createTempFile(parent, walPath.getFileName().toString(), ".tmp");
+                List<String> records = byId.values().stream().map(Hold::toWalRecord).toList();
+                Files.write(compacted, records, StandardCharsets.UTF_8);
+                if (wal != null) {
+                    wal.close();
+                }
+                Files.move(compacted, walPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                wal = Files.newBufferedWriter(walPath, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                appendedSinceCompaction.set(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not compact hold log " + walPath, e);
+            }
+        }
+    }
+
+    private void append(String record) {
+        synchronized (walLock) {
+            try {
+                wal.write(record);
+                wal.newLine();
+                wal.flush();
+                appendedSinceCompaction.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to hold log " + walPath, e);
+            }
+        }
+    }
+
+    private static DataFieldMaxValueIncrementer sequence(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product)
+                    ? new PostgresSequenceMaxValueIncrementer(dataSource, "booking_seq")
+                    : new H2SequenceMaxValueIncrementer(dataSource, "booking_seq");
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not determine database product", e);
+        }
+    }
+
+    public record Hold(Long id, Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime, int priceCents,
+            LocalDateTime expiresAt) {
+
+        boolean isActive(LocalDateTime now) {
+            return expiresAt.isAfter(now);
+        }
+
+        RoomDay roomDay() {
+            return new RoomDay(roomId, date);
+        }
+
+        BookingInterval toInterval() {
+            return new BookingInterval(id, roomId, date, startTime, endTime, BookingStatus.DRAFT, expiresAt);
+        }
+
+        BookingChangedEvent toEvent(BookingStatus status) {
+            return new BookingChangedEvent(roomId, date, startTime, endTime, status, expiresAt);
+        }
+
+        private String toWalRecord() {
+            return String.join("\t", "HOLD", id.toString(), roomId.toString(), date.toString(),
+                    startTime.toString(), endTime.toString(), Integer.toString(priceCents), expiresAt.toString());
+        }
+
+        private static Hold fromWalRecord(String[] fields) {
+            return new Hold(Long.valueOf(fields[1]), Long.valueOf(fields[2]), LocalDate.parse(fields[3]),
+                    LocalTime.parse(fields[4]), LocalTime.parse(fields[5]), Integer.parseInt(fields[6]),
+                    LocalDateTime.parse(fields[7]));
+        }
+    }
+}
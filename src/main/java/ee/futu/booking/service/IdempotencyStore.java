@@ -0,0 +1,259 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Responses of completed requests per (endpoint, caller, Idempotency-Key),
+ * kept for the TTL in the {@code idempotency_key} table with a bounded LRU in
+ * front. Keys are chosen by clients, so they only mean something per caller.
+ *
+ * A request first claims its key. Concurrent requests with the same key on
+ * this instance wait for the claimant and replay its response; on another
+ * instance they find the pending row and get {@link Decision.Outcome#IN_PROGRESS}.
+ * A pending row left behind by a crashed instance can be taken over once it
+ * is older than the pending timeout.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration pendingTimeout;
+    private final long waitTimeoutMillis;
+
+    private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Stored> recent;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+            @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${app.idempotency.wait-timeout:10s}") Duration waitTimeout,
+            @Value("${app.idempotency.pending-timeout:60s}") Duration pendingTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.pendingTimeout = pendingTimeout;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.executed = Counter.builder("idempotency.requests").tag("result", "executed").register(meterRegistry);
+        this.replayed = Counter.builder("idempotency.requests").tag("result", "replayed").register(meterRegistry);
+        this.rejected = Counter.builder("idempotency.requests").tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Decides what to do with a request carrying {@code idempotencyKey}.
+     * On {@link Decision.Outcome#EXECUTE} the caller owns the key and must
+     * finish with {@link #complete} or {@link #release}.
+     */
+    public Decision begin(String endpoint, String caller, String idempotencyKey, String requestHash) {
+        Key key = new Key(endpoint, caller, idempotencyKey);
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+
+        while (true) {
+            InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+            InFlight running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                Decision decision = claim(key, requestHash);
+                if (decision.outcome() != Decision.Outcome.EXECUTE) {
+                    inFlight.remove(key, mine);
+                    mine.response.complete(decision.response());
+                }
+                return count(decision);
+            }
+
+            if (!running.requestHash.equals(requestHash)) {
+                return count(Decision.of(Decision.Outcome.MISMATCH));
+            }
+            Stored response = await(running, deadline);
+            if (response != null) {
+                return count(new Decision(Decision.Outcome.REPLAY, response));
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return count(Decision.of(Decision.Outcome.IN_PROGRESS));
+            }
+            // The claimant released the key without a response; compete for it again
+        }
+    }
+
+    public void complete(String endpoint, String caller, String idempotencyKey, String requestHash, int status,
+            String contentType, String body) {
+        Key key = new Key(endpoint, caller, idempotencyKey);
+        Stored response = new Stored(requestHash, status, contentType, body, LocalDateTime.now().plus(ttl));
+        jdbcTemplate.update("""
+                UPDATE idempotency_key
+                SET response_status = ?, response_content_type = ?, response_body = ?
+                WHERE endpoint = ? AND caller = ? AND idempotency_key = ?
+                """, response.status(), response.contentType(), response.body(), endpoint, caller, idempotencyKey);
+        synchronized (recent) {
+            recent.put(key, response);
+        }
+        finish(key, response);
+    }
+
+    /**
+     * Gives the key up without a response, e.g. after a server error, so
+     * that a retry runs the request again.
+     */
+    public void release(String endpoint, String caller, String idempotencyKey) {
+        Key key = new Key(endpoint, caller, idempotencyKey);
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE endpoint = ? AND caller = ? AND idempotency_key = ?",
+                endpoint, caller, idempotencyKey);
+        finish(key, null);
+    }
+
+    /**
+     * Gives up on storing the response of a request that did take effect.
+     * The key stays claimed, so retries are told it is in progress rather
+     * than running the request again.
+     */
+    public void abandon(String endpoint, String caller, String idempotencyKey) {
+        finish(new Key(endpoint, caller, idempotencyKey), null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE expires_at <= ?", LocalDateTime.now());
+    }
+
+    private Decision claim(Key key, String requestHash) {
+        Stored cached;
+        synchronized (recent) {
+            cached = recent.get(key);
+        }
+        if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+            return cached.requestHash().equals(requestHash)
+                    ? new Decision(Decision.Outcome.REPLAY, cached)
+                    : Decision.of(Decision.Outcome.MISMATCH);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> rows = jdbcTemplate.query("""
+                SELECT request_hash, response_status, response_content_type, response_body, created_at, expires_at
+                FROM idempotency_key WHERE endpoint = ? AND caller = ? AND idempotency_key = ?
+                """, (rs, i) -> new Row(rs.getString(1), (Integer) rs.getObject(2), rs.getString(3), rs.getString(4),
+                rs.getTimestamp(5).toLocalDateTime(), rs.getTimestamp(6).toLocalDateTime()),
+                key.endpoint(), key.caller(), key.idempotencyKey());
+
+        if (!rows.isEmpty()) {
+            Row row = rows.get(0);
+            boolean expired = !row.expiresAt.isAfter(now);
+            boolean abandoned = row.status == null && row.createdAt.isBefore(now.minus(pendingTimeout));
+            if (!expired && !abandoned) {
+                if (!row.requestHash.equals(requestHash)) {
+                    return Decision.of(Decision.Outcome.MISMATCH);
+                }
+                if (row.status == null) {
+                    return Decision.of(Decision.Outcome.IN_PROGRESS);
+                }
+                Stored stored = new Stored(row.requestHash, row.status, row.contentType, row.body, row.expiresAt);
+                synchronized (recent) {
+                    recent.put(key, stored);
+                }
+                return new Decision(Decision.Outcome.REPLAY, stored);
+            }
+            jdbcTemplate.update("DELETE FROM idempotency_key WHERE endpoint = ? AND caller = ? AND idempotency_key = ? "
+                    + "AND created_at = ?", key.endpoint(), key.caller(), key.idempotencyKey(), row.createdAt);
+        }
+
+        try {
+            jdbcTemplate.update("""
+                    INSERT INTO idempotency_key (endpoint, caller, idempotency_key, request_hash, created_at,
+                                                 expires_at)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, key.endpoint(), key.caller(), key.idempotencyKey(), requestHash, now, now.plus(ttl));
+            return Decision.of(Decision.Outcome.EXECUTE);
+        } catch (DuplicateKeyException e) {
+            // Another instance claimed it between our read and insert
+            return Decision.of(Decision.Outcome.IN_PROGRESS);
+        }
+    }
+
+    /**
+     * @return the claimant's response, or null when it released the key or
+     *         the deadline passed first
+     */
+    private Stored await(InFlight running, long deadline) {
+        try {
+            return running.response.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void finish(Key key, Stored response) {
+        InFlight running = inFlight.remove(key);
+        if (running != null) {
+            running.response.complete(response);
+        }
+    }
+
+    private Decision count(Decision decision) {
+        switch (decision.outcome()) {
+            case EXECUTE -> executed.increment();
+            case REPLAY -> replayed.increment();
+            default -> rejected.increment();
+        }
+        return decision;
+    }
+
+    public record Decision(Outcome outcome, Stored response) {
+
+        public enum Outcome {
+            /** The caller owns the key and runs the request. */
+            EXECUTE,
+            /** An earlier identical request completed; send its response. */
+            REPLAY,
+            /** An identical request is still running elsewhere. */
+            IN_PROGRESS,
+            /** The key was used before with a different request body. */
+            MISMATCH
+        }
+
+        static Decision of(Outcome outcome) {
+            return new Decision(outcome, null);
+        }
+    }
+
+    public record Stored(String requestHash, int status, String contentType, String body, LocalDateTime expiresAt) {
+    }
+
+    private record Key(String endpoint, String caller, String idempotencyKey) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<Stored> response) {
+    }
+
+    private record Row(String requestHash, Integer status, String contentType, String body,
+            LocalDateTime createdAt, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,295 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingInterval;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per room-day occupancy bitmap. Each bit covers one time bucket
+ * ({@code granularity-minutes}, 30 by default) and is set while a blocking
+ * booking, including its cleanup buffer, occupies that bucket. Slot checks
+ * are then a handful of bitwise operations instead of a scan over bookings.
+ *
+ * Bitmaps are loaded lazily from {@code findActiveIntervals} plus any holds in
+ * the {@link HoldRegistry}, extended in place when a committed change adds a
+ * blocking booking and dropped (to be rebuilt on the next read) when a change
+ * releases one. A bitmap that includes DRAFT
+ * holds is only valid until the earliest of those holds expires.
+ *
+ * Only changes committed on this node reach the index, so every bitmap is
+ * also reloaded {@code ttl} after it was read, which bounds how long a
+ * booking written by another node can go unseen. At most {@code max-size}
+ * room-days are kept; {@link #verifySample} walks them in turn between
+ * reloads. That staleness is fine for showing availability but not for
+ * refusing a booking, so the conflict check in {@link BookingService} reads
+ * the table under the room-day lock instead.
+ */
+@Component
+public class OccupancyIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    static final int VERIFY_BATCH_SIZE = 100;
+
+    private final BookingRepository bookingRepository;
+    private final HoldRegistry holdRegistry;
+    private final int granularityMinutes;
+    private final int bucketCount;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<RoomDay, Occupancy> entries = new ConcurrentHashMap<>();
+    private int verifyCursor;
+
+    private final Counter loads;
+    private final Counter mismatches;
+
+    public OccupancyIndex(BookingRepository bookingRepository, HoldRegistry holdRegistry, MeterRegistry meterRegistry,
+            @Value("${app.availability.occupancy.granularity-minutes:30}") int granularityMinutes,
+            @Value("${app.availability.occupancy.ttl:60s}") Duration ttl,
+            @Value("${app.availability.occupancy.max-size:10000}") int maxSize) {
+        if (granularityMinutes <= 0 || MINUTES_PER_DAY % granularityMinutes != 0) {
+            throw new IllegalArgumentException("granularity-minutes must divide a day evenly: " + granularityMinutes);
+        }
+        this.bookingRepository = bookingRepository;
+        this.holdRegistry = holdRegistry;
+        this.granularityMinutes = granularityMinutes;
+        this.bucketCount = MINUTES_PER_DAY / granularityMinutes;
+        this.ttlMillis = ttl.toMillis();
+        this.maxSize = maxSize;
+        this.loads = Counter.builder("availability.occupancy.loads").register(meterRegistry);
+        this.mismatches = Counter.builder("availability.occupancy.mismatches").register(meterRegistry);
+        Gauge.builder("availability.occupancy.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public Occupancy get(Long roomId, LocalDate date) {
+        RoomDay key = new RoomDay(roomId, date);
+        Occupancy cached = entries.get(key);
+        if (cached != null && cached.isValid(System.currentTimeMillis())) {
+            return cached;
+        }
+
+        // Park a placeholder so that a change committed during the load makes
+        // the conditional replace fail instead of caching a stale bitmap.
+        Occupancy placeholder = Occupancy.placeholder();
+        if (cached == null) {
+            entries.putIfAbsent(key, placeholder);
+        } else {
+            entries.replace(key, cached, placeholder);
+        }
+
+        Occupancy loaded = load(roomId, date);
+        if (entries.replace(key, placeholder, loaded)) {
+            trimToSize();
+        }
+        return loaded;
+    }
+
+    /**
+     * Builds a bitmap from already fetched blocking bookings, e.g. one room-day
+     * of a bulk range query. The result is not stored in the index.
+     */
+    public Occupancy build(List<BookingInterval> blockingBookings) {
+        long[] words = new long[wordCount()];
+        long validUntil = Long.MAX_VALUE;
+        for (BookingInterval booking : blockingBookings) {
+            mark(words, booking.startTime(), booking.endTime());
+            if (booking.status() != BookingStatus.CONFIRMED && booking.expiresAt() != null) {
+                validUntil = Math.min(validUntil, toEpochMillis(booking.expiresAt()));
+            }
+        }
+        return new Occupancy(words, validUntil);
+    }
+
+    public int firstBucket(LocalTime time) {
+        return time.toSecondOfDay() / 60 / granularityMinutes;
+    }
+
+    /**
+     * Exclusive upper bucket of the blocking range of an interval ending at
+     * {@code time}, cleanup buffer included and clamped at midnight. Marking
+     * bookings and checking slots over the same ranges makes a bitmap check
+     * follow {@link SlotRules#overlaps}.
+     */
+    public int blockingEndBucket(LocalTime time) {
+        int minutes = SlotRules.blockingEndMinute(time);
+        return Math.min(bucketCount, (minutes + granularityMinutes - 1) / granularityMinutes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        RoomDay key = event.roomDay();
+        if (!blocks(event)) {
+            entries.remove(key);
+            return;
+        }
+
+        entries.computeIfPresent(key, (roomDay, current) -> {
+            if (current.isPlaceholder()) {
+                return null;
+            }
+            long[] words = current.words.clone();
+            mark(words, event.startTime(), event.endTime());
+            long validUntil = current.validUntil;
+            if (event.status() != BookingStatus.CONFIRMED) {
+                validUntil = Math.min(validUntil, toEpochMillis(event.expiresAt()));
+            }
+            return new Occupancy(words, validUntil);
+        });
+    }
+
+    /**
+     * Compares the cached bitmap for a room-day with a fresh read of
+     * {@code findActiveIntervals}, repairing and counting any divergence.
+     */
+    public boolean verify(Long roomId, LocalDate date) {
+        RoomDay key = new RoomDay(roomId, date);
+        Occupancy cached = entries.get(key);
+        if (cached == null || cached.isPlaceholder() || !cached.isValid(System.currentTimeMillis())) {
+            return true;
+        }
+
+        Occupancy fresh = load(roomId, date);
+        if (Arrays.equals(cached.words, fresh.words)) {
+            return true;
+        }
+        mismatches.increment();
+        entries.replace(key, cached, fresh);
+        return false;
+    }
+
+    /**
+     * Verifies the next {@code VERIFY_BATCH_SIZE} room-days, carrying on
+     * from where the previous run stopped so that every cached bitmap is
+     * checked in turn.
+     */
+    @Scheduled(fixedDelayString = "${app.availability.occupancy.verify-interval-ms:300000}")
+    public void verifySample() {
+        List<RoomDay> keys = new ArrayList<>(entries.keySet());
+        if (keys.isEmpty()) {
+            return;
+        }
+        int from = verifyCursor % keys.size();
+        int count = Math.min(VERIFY_BATCH_SIZE, keys.size());
+        for (int i = 0; i < count; i++) {
+            RoomDay key = keys.get((from + i) % keys.size());
+            verify(key.roomId(), key.date());
+        }
+        verifyCursor = from + count;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private Occupancy load(Long roomId, LocalDate date) {
+        loads.increment();
+        List<BookingInterval> blockingBookings = bookingRepository.findActiveIntervals(
+                roomId, date, LocalDateTime.now());
+        List<BookingInterval> held = holdRegistry.activeIntervals(roomId, date);
+        if (!held.isEmpty()) {
+            blockingBookings = new ArrayList<>(blockingBookings);
+            blockingBookings.addAll(held);
+        }
+        Occupancy built = build(blockingBookings);
+        return new Occupancy(built.words, Math.min(built.validUntil, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private void trimToSize() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(occupancy -> !occupancy.isPlaceholder() && !occupancy.isValid(now));
+
+        Iterator<RoomDay> keys = entries.keySet().iterator();
+        while (entries.size() > maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private boolean blocks(BookingChangedEvent event) {
+        if (event.status() == BookingStatus.CONFIRMED) {
+            return true;
+        }
+        return event.status() == BookingStatus.DRAFT
+                && event.expiresAt() != null
+                && event.expiresAt().isAfter(LocalDateTime.now());
+    }
+
+    private void mark(long[] words, LocalTime start, LocalTime end) {
+        int to = blockingEndBucket(end);
+        for (int bucket = firstBucket(start); bucket < to; bucket++) {
+            words[bucket >>> 6] |= 1L << bucket;
+        }
+    }
+
+    private int wordCount() {
+        return (bucketCount + 63) >>> 6;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static final class Occupancy {
+        private final long[] words;
+        private final long validUntil;
+
+        private Occupancy(long[] words, long validUntil) {
+            this.words = words;
+            this.validUntil = validUntil;
+        }
+
+        private static Occupancy placeholder() {
+            return new Occupancy(null, Long.MIN_VALUE);
+        }
+
+        /**
+         * True when no bucket in [fromBucket, toBucket) is occupied.
+         */
+        public boolean isFree(int fromBucket, int toBucket) {
+            for (int bucket = fromBucket; bucket < toBucket; ) {
+                int word = bucket >>> 6;
+                int last = Math.min(toBucket, (word + 1) << 6);
+                long mask = rangeMask(bucket & 63, last - (word << 6));
+                if ((words[word] & mask) != 0) {
+                    return false;
+                }
+                bucket = last;
+            }
+            return true;
+        }
+
+        private boolean isPlaceholder() {
+            return words == null;
+        }
+
+        private boolean isValid(long nowMillis) {
+            return words != null && nowMillis < validUntil;
+        }
+
+        private static long rangeMask(int from, int to) {
+            long upper = to == 64 ? -1L : (1L << to) - 1;
+            return upper & (-1L << from);
+        }
+    }
+}
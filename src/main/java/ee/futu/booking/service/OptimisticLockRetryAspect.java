@@ -0,0 +1,85 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Retries {@link RetryOnOptimisticLock} methods with bounded, fully jittered
+ * exponential backoff. Ordered ahead of the transaction interceptor, so each
+ * attempt is its own transaction and re-reads the booking; the version
+ * conflict itself mostly surfaces at commit, which is inside this advice.
+ * When attempts run out the caller gets 409 CONCURRENT_MODIFICATION.
+ *
+ * Exports {@code optimistic.lock.retries} and {@code optimistic.lock.outcome}
+ * per operation, to show where writers contend.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OptimisticLockRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticLockRetryAspect(MeterRegistry meterRegistry,
+            @Value("${app.booking.retry.max-attempts:3}") int maxAttempts,
+            @Value("${app.booking.retry.initial-backoff:20ms}") Duration initialBackoff,
+            @Value("${app.booking.retry.max-backoff:200ms}") Duration maxBackoff) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    @Around("@annotation(ee.futu.booking.service.RetryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                + joinPoint.getSignature().getName();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Object result = joinPoint.proceed();
+                if (attempt > 1) {
+                    outcome(operation, "recovered").increment();
+                }
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    outcome(operation, "exhausted").increment();
+                    throw new ResponseStatusException(CONFLICT, "CONCURRENT_MODIFICATION", e);
+                }
+                Counter.builder("optimistic.lock.retries").tag("operation", operation)
+                        .register(meterRegistry).increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private Counter outcome(String operation, String result) {
+        return Counter.builder("optimistic.lock.outcome").tag("operation", operation).tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void backoff(int attempt) throws InterruptedException {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+}
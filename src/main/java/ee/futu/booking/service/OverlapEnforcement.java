@@ -0,0 +1,47 @@
+package ee.futu.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Where booking overlaps are rejected. On PostgreSQL the
+ * {@code ex_booking_room_blocking_range} exclusion constraint does it at
+ * insert time; other databases (H2 in tests) fall back to a locked
+ * read-and-check in {@link BookingService}.
+ *
+ * {@code app.booking.overlap-check}: {@code auto} (default, by database
+ * product), {@code database} or {@code application}.
+ */
+@Component
+public class OverlapEnforcement {
+
+    private final boolean databaseEnforced;
+
+    public OverlapEnforcement(DataSource dataSource,
+            @Value("${app.booking.overlap-check:auto}") String mode) {
+        this.databaseEnforced = switch (mode) {
+            case "database" -> true;
+            case "application" -> false;
+            case "auto" -> isPostgreSql(dataSource);
+            default -> throw new IllegalArgumentException("Unknown app.booking.overlap-check: " + mode);
+        };
+    }
+
+    public boolean isDatabaseEnforced() {
+        return databaseEnforced;
+    }
+
+    private static boolean isPostgreSql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not determine database product", e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package ee.futu.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.futu.booking.web.PaymentWebhookRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable inbox for payment provider webhooks. Receipt only appends the
+ * event to {@code payment_inbox}, so the request thread is free at once;
+ * a dispatcher claims due events in batches and hands them to a bounded
+ * worker pool that applies them through {@link PaymentService}.
+ *
+ * Events of one payment reference are applied in arrival order: an event
+ * is only claimed once every earlier event of its reference is done or dead.
+ * A failure with a 4xx status (unknown booking, unknown event, wrong state)
+ * will not get better and is dead-lettered at once, except 409: a lost
+ * optimistic-lock race, like a constraint violation from a concurrent
+ * write, is retried with exponential backoff as anything else is, and
+ * dead-lettered after {@code max-attempts}. DONE and DEAD events are
+ * deleted after {@code retention}.
+ * A claim that is not finished within {@code processing-timeout}, e.g.
+ * because the instance died, is taken up again.
+ */
+@Component
+public class PaymentInbox {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration processingTimeout;
+    private final long pollIntervalMillis;
+    private final Duration retention;
+
+    private final ThreadPoolExecutor workers;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicLong depth = new AtomicLong();
+    private final Counter processed;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final Timer latency;
+    private final Timer processing;
+    private volatile Thread dispatcher;
+
+    public PaymentInbox(JdbcTemplate jdbcTemplate, PaymentService paymentService, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.payment.inbox.workers:4}") int workerCount,
+            @Value("${app.payment.inbox.batch-size:50}") int batchSize,
+            @Value("${app.payment.inbox.max-attempts:8}") int maxAttempts,
+            @Value("${app.payment.inbox.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${app.payment.inbox.max-backoff:5m}") Duration maxBackoff,
+            @Value("${app.payment.inbox.processing-timeout:2m}") Duration processingTimeout,
+            @Value("${app.payment.inbox.poll-interval:1s}") Duration pollInterval,
+            @Value("${app.payment.inbox.retention:30d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.processingTimeout = processingTimeout;
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.retention = retention;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize), daemonThreads("payment-inbox-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.processed = Counter.builder("payment.inbox.events").tag("result", "processed").register(meterRegistry);
+        this.retried = Counter.builder("payment.inbox.events").tag("result", "retried").register(meterRegistry);
+        this.deadLettered = Counter.builder("payment.inbox.events").tag("result", "dead").register(meterRegistry);
+        this.latency = Timer.builder("payment.inbox.latency")
+                .description("From receipt of a webhook until it was applied")
+                .register(meterRegistry);
+        this.processing = Timer.builder("payment.inbox.processing").register(meterRegistry);
+        Gauge.builder("payment.inbox.depth", depth, AtomicLong::get)
+                .description("Events received but not yet done or dead, as of the last poll")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the webhook for processing. Once this returns, the event is
+     * durable and will be applied.
+     */
+    public void append(PaymentWebhookRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO payment_inbox (payment_reference, payload, status, received_at, next_attempt_at)
+                VALUES (?, ?, 'PENDING', ?, ?)
+                """, request.getPaymentReference(), toJson(request), now, now);
+        wakeUp.release();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "payment-inbox-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.inbox.cleanup-interval-ms:3600000}")
+    public void deleteFinished() {
+        jdbcTemplate.update("DELETE FROM payment_inbox WHERE status IN ('DONE', 'DEAD') AND processed_at <= ?",
+                LocalDateTime.now().minus(retention));
+    }
+
+    /**
+     * Claims one batch of due events and applies them, each reference's
+     * event on its own worker.
+     *
+     * @return the number of events claimed
+     */
+    int drainOnce() throws InterruptedException {
+        List<Entry> batch = claim();
+        List<Future<?>> running = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            running.add(workers.submit(() -> apply(entry)));
+        }
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // apply() records its own failures
+            }
+        }
+        depth.set(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payment_inbox WHERE status IN ('PENDING', 'PROCESSING')", Long.class));
+        return batch.size();
+    }
+
+    private void run() {
+        while (dispatcher == Thread.currentThread()) {
+            try {
+                if (drainOnce() == 0) {
+                    wakeUp.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Database unavailable; try again on the next poll
+                sleep();
+            }
+        }
+    }
+
+    private List<Entry> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        // Only the oldest open event of each reference is eligible, which keeps references in order
+        List<Long> candidates = jdbcTemplate.queryForList("""
+                SELECT i.id FROM payment_inbox i
+                WHERE ((i.status = 'PENDING' AND i.next_attempt_at <= ?)
+                       OR (i.status = 'PROCESSING' AND i.locked_until <= ?))
+                  AND NOT EXISTS (SELECT 1 FROM payment_inbox e
+                                  WHERE e.payment_reference = i.payment_reference
+                                    AND e.status IN ('PENDING', 'PROCESSING') AND e.id < i.id)
+                ORDER BY i.id
+                LIMIT ?
+                """, Long.class, now, now, batchSize);
+
+        List<Entry> claimed = new ArrayList<>(candidates.size());
+        LocalDateTime lockedUntil = now.plus(processingTimeout);
+        for (Long id : candidates) {
+            int updated = jdbcTemplate.update("""
+                    UPDATE payment_inbox SET status = 'PROCESSING', locked_until = ?, attempts = attempts + 1
+                    WHERE id = ? AND (status = 'PENDING' OR (status = 'PROCESSING' AND locked_until <= ?))
+                    """, lockedUntil, id, now);
+            if (updated == 1) {
+                claimed.addAll(jdbcTemplate.query(
+                        "SELECT id, payload, attempts, received_at FROM payment_inbox WHERE id = ?",
+                        (rs, i) -> new Entry(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                                rs.getObject(4, LocalDateTime.class)), id));
+            }
+        }
+        return claimed;
+    }
+
+    private void apply(Entry entry) {
+        try {
+            processing.record(() -> paymentService.handlePaymentWebhook(fromJson(entry.payload())));
+            jdbcTemplate.update("UPDATE payment_inbox SET status = 'DONE', processed_at = ?, last_error = NULL, "
+                    + "locked_until = NULL WHERE id = ?", LocalDateTime.now(), entry.id());
+            latency.record(Duration.between(entry.receivedAt(), LocalDateTime.now()));
+            processed.increment();
+        } catch (RuntimeException e) {
+            if (isPermanent(e) || entry.attempts() >= maxAttempts) {
+                jdbcTemplate.update("UPDATE payment_inbox SET status = 'DEAD', processed_at = ?, last_error = ?, "
+                        + "locked_until = NULL WHERE id = ?", LocalDateTime.now(), describe(e), entry.id());
+                deadLettered.increment();
+            } else {
+                jdbcTemplate.update("UPDATE payment_inbox SET status = 'PENDING', next_attempt_at = ?, "
+                        + "last_error = ?, locked_until = NULL WHERE id = ?",
+                        LocalDateTime.now().plus(backoff(entry.attempts())), describe(e), entry.id());
+                retried.increment();
+            }
+        }
+    }
+
+    private static boolean isPermanent(RuntimeException e) {
+        return e instanceof ResponseStatusException status && status.getStatusCode().is4xxClientError()
+                && status.getStatusCode() != HttpStatus.CONFLICT;
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private String toJson(PaymentWebhookRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PaymentWebhookRequest fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, PaymentWebhookRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String describe(RuntimeException e) {
+        String message = e instanceof ResponseStatusException status ? status.getReason() : e.toString();
+        if (message != null && message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        return message;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Entry(long id, String payload, int attempts, LocalDateTime receivedAt) {
+    }
+}
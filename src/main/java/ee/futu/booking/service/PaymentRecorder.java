@@ -0,0 +1,181 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.payment.Payment;
+import ee.futu.booking.domain.payment.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records every payment attempt and provider event as a {@code payment}
+ * row for reconciliation. The request thread only queues the record once
+ * its transaction commits; a writer thread drains the queue and inserts up
+ * to {@code batch-size} rows per transaction, which the pooled
+ * {@code payment_seq} ids let Hibernate send as one JDBC batch.
+ *
+ * The rows are an audit trail, not the state of the booking: when the
+ * queue is full the record is counted as dropped rather than slowing down
+ * the payment. A batch that fails to insert is written again row by row,
+ * so only the rows that fail on their own are lost, counted as failed.
+ * Records still queued at shutdown are written before the context closes.
+ */
+@Component
+public class PaymentRecorder {
+
+    private final PaymentRepository paymentRepository;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final BlockingQueue<Entry> queue;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile Thread writer;
+
+    public PaymentRecorder(PaymentRepository paymentRepository, BookingRepository bookingRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.payment.recorder.batch-size:50}") int batchSize,
+            @Value("${app.payment.recorder.queue-capacity:10000}") int queueCapacity) {
+        this.paymentRepository = paymentRepository;
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.written = Counter.builder("payment.records").tag("result", "written").register(meterRegistry);
+        this.dropped = Counter.builder("payment.records").tag("result", "dropped").register(meterRegistry);
+        this.failed = Counter.builder("payment.records").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("payment.records.queue", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    /**
+     * Queues a {@code payment} row for the booking's current payment, as
+     * of now, once the current transaction commits; at once if there is
+     * none.
+     */
+    public void record(Booking booking, String status) {
+        Entry entry = new Entry(booking.getId(), booking.getPaymentProvider(),
+                booking.getPaymentReference() == null ? null : booking.getPaymentReference().toString(),
+                status, booking.getTotalPriceCents(), LocalDateTime.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entry);
+                }
+            });
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "payment-recorder");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = writer;
+        writer = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (flush() > 0) {
+            // Write whatever was still queued
+        }
+    }
+
+    /**
+     * Writes up to one batch of queued records without waiting for more.
+     *
+     * @return the number of records taken from the queue
+     */
+    int flush() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        write(batch);
+        return batch.size();
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (writer == Thread.currentThread()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.saveAll(
+                    batch.stream().map(this::toPayment).toList()));
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed.increment();
+                return;
+            }
+            for (Entry entry : batch) {
+                write(List.of(entry));
+            }
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private Payment toPayment(Entry entry) {
+        Payment payment = new Payment();
+        // A reference is enough for the foreign key; the booking is not loaded
+        payment.setBooking(bookingRepository.getReferenceById(entry.bookingId()));
+        payment.setProvider(entry.provider());
+        payment.setProviderPaymentId(entry.providerPaymentId());
+        payment.setStatus(entry.status());
+        payment.setAmountCents(entry.amountCents());
+        payment.setCreatedAt(entry.createdAt());
+        return payment;
+    }
+
+    private record Entry(Long bookingId, String provider, String providerPaymentId, String status,
+            Integer amountCents, LocalDateTime createdAt) {
+    }
+}
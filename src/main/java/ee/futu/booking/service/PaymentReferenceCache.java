@@ -0,0 +1,53 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bounded LRU of payment reference to booking id, filled when a payment
+ * starts, so that its webhooks resolve the booking by primary key. An
+ * entry can outlive a rolled-back start, so callers check the reference
+ * on the booking they load.
+ */
+@Component
+public class PaymentReferenceCache {
+
+    private final Map<UUID, Long> bookingIds;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PaymentReferenceCache(MeterRegistry meterRegistry,
+            @Value("${app.payment.reference-cache-size:10000}") int maxSize) {
+        this.bookingIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = Counter.builder("payment.reference.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("payment.reference.cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public void put(UUID paymentReference, Long bookingId) {
+        synchronized (bookingIds) {
+            bookingIds.put(paymentReference, bookingId);
+        }
+    }
+
+    public Optional<Long> get(UUID paymentReference) {
+        Long bookingId;
+        synchronized (bookingIds) {
+            bookingId = bookingIds.get(paymentReference);
+        }
+        (bookingId == null ? misses : hits).increment();
+        return Optional.ofNullable(bookingId);
+    }
+}
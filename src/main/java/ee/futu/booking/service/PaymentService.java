@@ -6,24 +6,55 @@ import ee.futu.booking.domain.booking.BookingStatus;
 import ee.futu.booking.web.StartPaymentRequest;
 import ee.futu.booking.web.StartPaymentResponse;
 import ee.futu.booking.web.PaymentWebhookRequest;
+import ee.futu.booking.web.PaymentWebhookResult;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
 
-    private final BookingRepository bookingRepository;
+    private static final Set<String> KNOWN_EVENTS = Set.of("PAID", "FAILED", "CANCELLED");
 
-    public PaymentService(BookingRepository bookingRepository) {
+    private final BookingRepository bookingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HoldRegistry holdRegistry;
+    private final PaymentReferenceCache paymentReferenceCache;
+    private final ProcessedWebhookEvents processedWebhookEvents;
+    private final PaymentRecorder paymentRecorder;
+
+    public PaymentService(BookingRepository bookingRepository, ApplicationEventPublisher eventPublisher,
+            HoldRegistry holdRegistry, PaymentReferenceCache paymentReferenceCache,
+            ProcessedWebhookEvents processedWebhookEvents, PaymentRecorder paymentRecorder) {
         this.bookingRepository = bookingRepository;
+        this.eventPublisher = eventPublisher;
+        this.holdRegistry = holdRegistry;
+        this.paymentReferenceCache = paymentReferenceCache;
+        this.processedWebhookEvents = processedWebhookEvents;
+        this.paymentRecorder = paymentRecorder;
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public StartPaymentResponse startPayment(StartPaymentRequest request) {
+        // A hold kept in memory becomes a row now; the slot is already its own
+        holdRegistry.persist(request.getBookingId());
+
         Booking booking = bookingRepository.findById(request.getBookingId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "BOOKING_NOT_FOUND"));
 
@@ -33,34 +64,119 @@ public class PaymentService {
 
         // Transition to PENDING_PAYMENT
         booking.setStatus(BookingStatus.PENDING_PAYMENT);
-        String paymentReference = UUID.randomUUID().toString();
+        UUID paymentReference = UUID.randomUUID();
         booking.setPaymentReference(paymentReference);
         booking.setPaymentProvider(request.getProvider());
         // Keep existing expiresAt to avoid complexity
 
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(booking));
+        paymentReferenceCache.put(paymentReference, booking.getId());
+        paymentRecorder.record(booking, "STARTED");
 
         return new StartPaymentResponse(
                 booking.getId(),
                 booking.getStatus().name(),
-                paymentReference,
+                paymentReference.toString(),
                 "/checkout/" + paymentReference + "?bookingId=" + booking.getId(),
                 booking.getExpiresAt());
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public void handlePaymentWebhook(PaymentWebhookRequest request) {
-        Booking booking = bookingRepository.findByPaymentReference(request.getPaymentReference())
+        // Redelivery of an event already applied: acknowledge without touching the booking
+        if (processedWebhookEvents.isProcessed(request)) {
+            return;
+        }
+
+        Booking booking = findByPaymentReference(request.getPaymentReference())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "BOOKING_NOT_FOUND"));
 
-        // Idempotent: ignore if already in final state
+        if (applyEvent(booking, request.getEvent())) {
+            bookingRepository.save(booking);
+            processedWebhookEvents.markProcessed(request);
+            eventPublisher.publishEvent(BookingChangedEvent.of(booking));
+        } else {
+            processedWebhookEvents.markProcessed(request);
+        }
+        paymentRecorder.record(booking, recordedStatus(request.getEvent()));
+    }
+
+    /**
+     * Applies a batch of webhook events, e.g. a provider reconciliation
+     * replay, in one transaction: one query resolves every reference, the
+     * events are applied in order on the loaded bookings, and the changes
+     * are flushed together as batched updates. Events that cannot be
+     * applied are reported rather than failing the batch.
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public List<PaymentWebhookResult> handlePaymentWebhooks(List<PaymentWebhookRequest> requests) {
+        Set<String> processedBefore = processedWebhookEvents.findProcessed(requests);
+        Set<UUID> references = requests.stream()
+                .map(request -> parseReference(request.getPaymentReference()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, Booking> bookings = references.isEmpty() ? Map.of()
+                : bookingRepository.findByPaymentReferenceIn(references).stream()
+                        .collect(Collectors.toMap(Booking::getPaymentReference, Function.identity()));
+
+        List<PaymentWebhookResult> results = new ArrayList<>(requests.size());
+        List<PaymentWebhookRequest> processed = new ArrayList<>();
+        Set<String> processedHere = new HashSet<>();
+        Set<Booking> changed = new LinkedHashSet<>();
+        for (PaymentWebhookRequest request : requests) {
+            String key = ProcessedWebhookEvents.keyOf(request);
+            if (processedBefore.contains(key) || processedHere.contains(key)) {
+                if (!processedBefore.contains(key)) {
+                    processedWebhookEvents.countDuplicate();
+                }
+                results.add(result(request, PaymentWebhookResult.Outcome.DUPLICATE, null, null));
+                continue;
+            }
+            Booking booking = bookings.get(parseReference(request.getPaymentReference()));
+            if (booking == null) {
+                results.add(result(request, PaymentWebhookResult.Outcome.REJECTED, null, "BOOKING_NOT_FOUND"));
+                continue;
+            }
+            try {
+                boolean applied = applyEvent(booking, request.getEvent());
+                if (applied) {
+                    changed.add(booking);
+                }
+                processedHere.add(key);
+                processed.add(request);
+                paymentRecorder.record(booking, recordedStatus(request.getEvent()));
+                results.add(result(request, applied ? PaymentWebhookResult.Outcome.APPLIED
+                        : PaymentWebhookResult.Outcome.IGNORED, booking.getStatus(), null));
+            } catch (ResponseStatusException e) {
+                results.add(result(request, PaymentWebhookResult.Outcome.REJECTED, booking.getStatus(),
+                        e.getReason()));
+            }
+        }
+
+        bookingRepository.flush();
+        processedWebhookEvents.markAllProcessed(processed);
+        changed.forEach(booking -> eventPublisher.publishEvent(BookingChangedEvent.of(booking)));
+        return results;
+    }
+
+    /**
+     * Moves a PENDING_PAYMENT booking on according to the provider event.
+     *
+     * @return false when the booking was already confirmed or cancelled,
+     *         which makes a repeated event harmless
+     */
+    private boolean applyEvent(Booking booking, String event) {
         if (booking.getStatus() == BookingStatus.CONFIRMED || booking.getStatus() == BookingStatus.CANCELLED) {
-            return;
+            return false;
         }
         if (booking.getStatus() != BookingStatus.PENDING_PAYMENT) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "BOOKING_NOT_AWAITING_PAYMENT");
         }
 
-        switch (request.getEvent()) {
+        switch (event) {
             case "PAID":
                 if (isExpired(booking)) {
                     // Payment arrived after expiry - cancel
@@ -78,21 +194,51 @@ public class PaymentService {
             default:
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "UNKNOWN_WEBHOOK_EVENT");
         }
-
-        bookingRepository.save(booking);
+        return true;
     }
 
-    public void cancelExpiredTemporaryBookings() {
-        List<BookingStatus> temporaryStatuses = List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT);
-        List<Booking> expiredBookings = bookingRepository.findExpiredTemporaryBookings(temporaryStatuses,
-                LocalDateTime.now());
+    private Optional<Booking> findByPaymentReference(String paymentReference) {
+        UUID reference = parseReference(paymentReference);
+        if (reference == null) {
+            return Optional.empty();
+        }
 
-        if (!expiredBookings.isEmpty()) {
-            List<Long> expiredIds = expiredBookings.stream()
-                    .map(Booking::getId)
-                    .toList();
-            bookingRepository.updateStatusByIds(expiredIds, BookingStatus.CANCELLED);
+        Optional<Booking> cached = paymentReferenceCache.get(reference)
+                .flatMap(bookingRepository::findById)
+                .filter(booking -> reference.equals(booking.getPaymentReference()));
+        if (cached.isPresent()) {
+            return cached;
         }
+        Optional<Booking> booking = bookingRepository.findByPaymentReference(reference);
+        booking.ifPresent(found -> paymentReferenceCache.put(reference, found.getId()));
+        return booking;
+    }
+
+    /**
+     * @return null for anything that is not a UUID, which cannot be one of
+     *         our references
+     */
+    private static UUID parseReference(String paymentReference) {
+        try {
+            return UUID.fromString(paymentReference);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The event as a payment status. An event that was ignored because the
+     * booking was already settled is never validated, so anything unknown
+     * is recorded as such rather than as whatever the provider sent.
+     */
+    private static String recordedStatus(String event) {
+        return KNOWN_EVENTS.contains(event) ? event : "UNKNOWN";
+    }
+
+    private static PaymentWebhookResult result(PaymentWebhookRequest request, PaymentWebhookResult.Outcome outcome,
+            BookingStatus bookingStatus, String error) {
+        return new PaymentWebhookResult(request.getPaymentReference(), request.getEventId(), outcome,
+                bookingStatus == null ? null : bookingStatus.name(), error);
     }
 
     private boolean isExpired(Booking booking) {
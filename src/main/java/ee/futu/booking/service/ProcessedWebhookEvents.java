@@ -0,0 +1,164 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.web.PaymentWebhookRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Payment webhook events that have been applied, kept for the retention
+ * period in {@code processed_webhook_event} with a bounded LRU of recent
+ * keys in front. An event is identified by the provider's {@code eventId};
+ * events sent without one fall back to (reference, event type), which is
+ * just as safe since applying the same event type to a reference twice
+ * never changes anything.
+ *
+ * A key is only added to the LRU once the transaction that applied the
+ * event commits, so a rolled-back attempt never hides a redelivery.
+ */
+@Component
+public class ProcessedWebhookEvents {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final Map<String, Boolean> recent;
+    private final Counter duplicates;
+    private final Counter fresh;
+
+    public ProcessedWebhookEvents(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.payment.processed-events.retention:30d}") Duration retention,
+            @Value("${app.payment.processed-events.cache-size:10000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.duplicates = Counter.builder("payment.webhook.events").tag("result", "duplicate")
+                .register(meterRegistry);
+        this.fresh = Counter.builder("payment.webhook.events").tag("result", "new").register(meterRegistry);
+    }
+
+    public static String keyOf(PaymentWebhookRequest request) {
+        return request.getEventId() != null
+                ? "id:" + request.getEventId()
+                : "ref:" + request.getPaymentReference() + ":" + request.getEvent();
+    }
+
+    /**
+     * Whether the event was applied before. Every delivery is counted once
+     * in {@code payment.webhook.events}: as a duplicate here, or as new
+     * when it is marked processed.
+     */
+    public boolean isProcessed(PaymentWebhookRequest request) {
+        String key = keyOf(request);
+        boolean processed;
+        synchronized (recent) {
+            processed = recent.containsKey(key);
+        }
+        if (!processed) {
+            processed = !jdbcTemplate.queryForList("SELECT 1 FROM processed_webhook_event WHERE event_key = ?",
+                    Integer.class, key).isEmpty();
+            if (processed) {
+                remember(key);
+            }
+        }
+        if (processed) {
+            duplicates.increment();
+        }
+        return processed;
+    }
+
+    /**
+     * Keys of the events among {@code requests} that were applied before,
+     * looked up with one query for whatever the LRU does not know. Each
+     * such request counts as a duplicate.
+     */
+    public Set<String> findProcessed(List<PaymentWebhookRequest> requests) {
+        Set<String> processed = new HashSet<>();
+        Set<String> unknown = new HashSet<>();
+        synchronized (recent) {
+            for (PaymentWebhookRequest request : requests) {
+                String key = keyOf(request);
+                (recent.containsKey(key) ? processed : unknown).add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+            List<String> found = named.queryForList(
+                    "SELECT event_key FROM processed_webhook_event WHERE event_key IN (:keys)",
+                    Map.of("keys", unknown), String.class);
+            found.forEach(this::remember);
+            processed.addAll(found);
+        }
+        duplicates.increment(requests.stream().filter(request -> processed.contains(keyOf(request))).count());
+        return processed;
+    }
+
+    /**
+     * Records the event as applied, as part of the current transaction if
+     * there is one.
+     */
+    public void markProcessed(PaymentWebhookRequest request) {
+        markAllProcessed(List.of(request));
+    }
+
+    public void markAllProcessed(List<PaymentWebhookRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> keys = requests.stream().map(ProcessedWebhookEvents::keyOf).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO processed_webhook_event (event_key, payment_reference, processed_at) "
+                + "VALUES (?, ?, ?)", requests.stream()
+                .map(request -> new Object[] {keyOf(request), request.getPaymentReference(), now})
+                .toList());
+        fresh.increment(requests.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(ProcessedWebhookEvents.this::remember);
+                }
+            });
+        } else {
+            keys.forEach(this::remember);
+        }
+    }
+
+    /**
+     * Counts a repeat that the caller caught itself, e.g. the same event
+     * twice in one batch.
+     */
+    void countDuplicate() {
+        duplicates.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.processed-events.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM processed_webhook_event WHERE processed_at <= ?",
+                LocalDateTime.now().minus(retention));
+    }
+
+    private void remember(String key) {
+        synchronized (recent) {
+            recent.put(key, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ee.futu.booking.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated transactional method again, in a fresh transaction,
+ * when it loses an optimistic-lock race. Only for methods that read the
+ * state they change, so that a retry re-applies the transition to the
+ * current row. See {@link OptimisticLockRetryAspect}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+}
@@ -0,0 +1,6 @@
+package ee.futu.booking.service;
+
+import java.time.LocalDate;
+
+public record RoomDay(Long roomId, LocalDate date) {
+}
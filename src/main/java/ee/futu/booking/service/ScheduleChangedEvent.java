@@ -0,0 +1,8 @@
+package ee.futu.booking.service;
+
+/**
+ * Published when {@link ScheduleEngine} swaps in a different slot schedule.
+ * Anything derived from slot times or prices is stale from then on.
+ */
+public record ScheduleChangedEvent() {
+}
@@ -0,0 +1,124 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.slot.SlotTemplate;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bookable slots and their prices per weekday, compiled from active
+ * {@code slot_template} rows into an immutable weekday-indexed table.
+ * Lookups index into that table and allocate nothing.
+ *
+ * Templates are re-read periodically; a changed table is swapped in as a
+ * whole and announced with {@link ScheduleChangedEvent}. Until templates
+ * are loaded, or when none are active, the built-in {@link SlotRules}
+ * schedule applies.
+ */
+@Component
+public class ScheduleEngine {
+
+    private final SlotTemplateRepository slotTemplateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<Schedule> schedule = new AtomicReference<>(Schedule.fromSlotRules());
+
+    public ScheduleEngine(SlotTemplateRepository slotTemplateRepository, ApplicationEventPublisher eventPublisher) {
+        this.slotTemplateRepository = slotTemplateRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Slots for the date's weekday, ordered by start time. The list is shared
+     * and unmodifiable.
+     */
+    public List<Slot> slotsFor(LocalDate date) {
+        return schedule.get().slotsFor(date.getDayOfWeek());
+    }
+
+    /**
+     * The slot starting at {@code startTime} on that date, or null when no
+     * slot starts then.
+     */
+    public Slot slotAt(LocalDate date, LocalTime startTime) {
+        for (Slot slot : slotsFor(date)) {
+            if (slot.startTime().equals(startTime)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.schedule.reload-interval-ms:60000}",
+            fixedDelayString = "${app.schedule.reload-interval-ms:60000}")
+    public void reload() {
+        List<SlotTemplate> templates = slotTemplateRepository.findByActiveTrue();
+        Schedule loaded = templates.isEmpty() ? Schedule.fromSlotRules() : Schedule.fromTemplates(templates);
+
+        Schedule current = schedule.get();
+        if (!loaded.equals(current) && schedule.compareAndSet(current, loaded)) {
+            eventPublisher.publishEvent(new ScheduleChangedEvent());
+        }
+    }
+
+    public record Slot(LocalTime startTime, LocalTime endTime, int priceCents) {
+    }
+
+    /**
+     * @param byWeekday slot lists indexed by {@link DayOfWeek#getValue()}; index 0 is unused
+     */
+    private record Schedule(List<List<Slot>> byWeekday) {
+
+        List<Slot> slotsFor(DayOfWeek dayOfWeek) {
+            return byWeekday.get(dayOfWeek.getValue());
+        }
+
+        static Schedule fromTemplates(List<SlotTemplate> templates) {
+            List<List<Slot>> slots = emptyWeek();
+            templates.stream()
+                    .filter(template -> template.getWeekday() >= 1 && template.getWeekday() <= 7)
+                    .sorted(Comparator.comparing(SlotTemplate::getStartTime))
+                    .forEach(template -> slots.get(template.getWeekday()).add(
+                            new Slot(template.getStartTime(), template.getEndTime(), template.getPriceCents())));
+            return freeze(slots);
+        }
+
+        static Schedule fromSlotRules() {
+            List<List<Slot>> slots = emptyWeek();
+            // Any date works as a template for its weekday
+            LocalDate monday = LocalDate.of(2024, 1, 1);
+            for (int day = 0; day < 7; day++) {
+                LocalDate date = monday.plusDays(day);
+                int priceCents = SlotRules.priceCentsFor(date);
+                for (SlotRules.SlotDef slotDef : SlotRules.allowedSlotsFor(date)) {
+                    slots.get(date.getDayOfWeek().getValue()).add(
+                            new Slot(slotDef.getStartTime(), slotDef.getEndTime(), priceCents));
+                }
+            }
+            return freeze(slots);
+        }
+
+        private static List<List<Slot>> emptyWeek() {
+            List<List<Slot>> slots = new ArrayList<>(8);
+            for (int weekday = 0; weekday <= 7; weekday++) {
+                slots.add(new ArrayList<>());
+            }
+            return slots;
+        }
+
+        private static Schedule freeze(List<List<Slot>> slots) {
+            return new Schedule(slots.stream().map(List::copyOf).toList());
+        }
+    }
+}
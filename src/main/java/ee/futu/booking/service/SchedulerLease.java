@@ -0,0 +1,174 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Lets a scheduled job run on one instance of the cluster only. The
+ * instance holding a job's row in {@code scheduler_lock} renews its lease on
+ * every tick; the others skip the tick until the lease lapses, so a dead
+ * leader is replaced within one lease duration. Every takeover bumps the
+ * fencing token, which jobs pass into their writes so that a leader that
+ * stalled past its lease cannot write after being replaced.
+ *
+ * Lease times come from the application clock, so instances need their
+ * clocks in sync (NTP) to well within the lease duration.
+ */
+@Component
+public class SchedulerLease {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration leaseDuration;
+    private final String instanceId;
+
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    public SchedulerLease(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.scheduler.lease.duration:15m}") Duration leaseDuration,
+            @Value("${app.scheduler.instance-id:}") String instanceId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.leaseDuration = leaseDuration;
+        this.instanceId = instanceId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8)
+                : instanceId;
+    }
+
+    /**
+     * Runs {@code job} if this instance holds, or can take, the lease on
+     * {@code name}, and records the run.
+     *
+     * @return whether the job ran here
+     */
+    public boolean runIfLeader(String name, Consumer<Lease> job) {
+        JobState state = state(name);
+        Optional<Lease> lease = tryAcquire(name);
+        if (lease.isEmpty()) {
+            state.skipped.increment();
+            return false;
+        }
+        job.accept(lease.get());
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("UPDATE scheduler_lock SET last_run_at = ? WHERE name = ? AND fencing_token = ?",
+                now, name, lease.get().fencingToken());
+        state.lastRunAt = now;
+        state.ran.increment();
+        return true;
+    }
+
+    /**
+     * Takes or renews the lease on {@code name}. The lease is kept after the
+     * job is done, so the same instance keeps running it on later ticks.
+     */
+    Optional<Lease> tryAcquire(String name) {
+        JobState state = state(name);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(leaseDuration);
+
+        // SET expressions see the old row, so the token only moves when the owner changes
+        int updated = jdbcTemplate.update("""
+                UPDATE scheduler_lock
+                SET fencing_token = CASE WHEN owner = ? THEN fencing_token ELSE fencing_token + 1 END,
+                    owner = ?, lease_until = ?
+                WHERE name = ? AND (owner = ? OR lease_until <= ?)
+                """, instanceId, instanceId, leaseUntil, name, instanceId, now);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO scheduler_lock (name, owner, lease_until, fencing_token) "
+                        + "VALUES (?, ?, ?, 1)", name, instanceId, leaseUntil);
+            } catch (DuplicateKeyException e) {
+                // Held by another instance
+            }
+        }
+
+        List<Row> rows = jdbcTemplate.query(
+                "SELECT owner, fencing_token, last_run_at FROM scheduler_lock WHERE name = ?",
+                (rs, i) -> new Row(rs.getString(1), rs.getLong(2), rs.getObject(3, LocalDateTime.class)), name);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Row row = rows.get(0);
+        state.lastRunAt = row.lastRunAt();
+        state.leader = instanceId.equals(row.owner());
+        return state.leader ? Optional.of(new Lease(name, row.fencingToken())) : Optional.empty();
+    }
+
+    /**
+     * Hands the leases held here back on shutdown, so another instance can
+     * take over on its next tick instead of waiting for them to lapse.
+     */
+    @PreDestroy
+    void releaseAll() {
+        jdbcTemplate.update("UPDATE scheduler_lock SET lease_until = ? WHERE owner = ? AND lease_until > ?",
+                LocalDateTime.now(), instanceId, LocalDateTime.now());
+        jobs.values().forEach(state -> state.leader = false);
+    }
+
+    String instanceId() {
+        return instanceId;
+    }
+
+    private JobState state(String name) {
+        return jobs.computeIfAbsent(name, this::register);
+    }
+
+    private JobState register(String name) {
+        JobState state = new JobState(
+                Counter.builder("scheduler.lease.runs").tag("job", name).tag("result", "ran").register(meterRegistry),
+                Counter.builder("scheduler.lease.runs").tag("job", name).tag("result", "skipped")
+                        .register(meterRegistry));
+        Gauge.builder("scheduler.lease.leader", state, s -> s.leader ? 1 : 0).tag("job", name)
+                .description("1 while this instance holds the job's lease")
+                .register(meterRegistry);
+        Gauge.builder("scheduler.lease.lag", state, JobState::lagSeconds).tag("job", name)
+                .description("Seconds since the job last ran on any instance")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        return state;
+    }
+
+    /**
+     * @param fencingToken changes whenever the lease changes hands; a write
+     *                     that checks it is refused once the lease is lost
+     */
+    public record Lease(String name, long fencingToken) {
+    }
+
+    private record Row(String owner, long fencingToken, LocalDateTime lastRunAt) {
+    }
+
+    private static final class JobState {
+        private final Counter ran;
+        private final Counter skipped;
+        private volatile boolean leader;
+        private volatile LocalDateTime lastRunAt;
+
+        private JobState(Counter ran, Counter skipped) {
+            this.ran = ran;
+            this.skipped = skipped;
+        }
+
+        double lagSeconds() {
+            LocalDateTime last = lastRunAt;
+            return last == null ? Double.NaN : ChronoUnit.MILLIS.between(last, LocalDateTime.now()) / 1000.0;
+        }
+    }
+}
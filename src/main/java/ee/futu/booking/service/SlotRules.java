@@ -64,4 +64,23 @@ public class SlotRules {
     public static LocalTime getBookingBlockingEnd(LocalTime endTime) {
         return endTime.plusMinutes(CLEANUP_MINUTES);
     }
+    
+    /**
+     * Minute of the day at which a booking ending at {@code endTime} stops
+     * blocking the room. Unlike {@link #getBookingBlockingEnd} it runs past
+     * 24:00 instead of wrapping round to the early morning.
+     */
+    public static int blockingEndMinute(LocalTime endTime) {
+        return endTime.toSecondOfDay() / 60 + CLEANUP_MINUTES;
+    }
+    
+    /**
+     * The overlap rule, the same as the exclusion constraint's: two bookings
+     * of a room clash when their blocking ranges [start, end + cleanup)
+     * overlap, so each needs the cleanup buffer before the next one starts.
+     */
+    public static boolean overlaps(LocalTime startA, LocalTime endA, LocalTime startB, LocalTime endB) {
+        return startA.toSecondOfDay() / 60 < blockingEndMinute(endB)
+                && startB.toSecondOfDay() / 60 < blockingEndMinute(endA);
+    }
 }
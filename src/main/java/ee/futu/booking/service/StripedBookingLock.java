@@ -0,0 +1,108 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * In-JVM {@link BookingLock}: room-days hash onto a fixed set of lock
+ * stripes, released after the transaction completes. Two room-days rarely
+ * share a stripe; when they do, their writers wait for each other. Only
+ * safe while a single instance writes bookings.
+ *
+ * What is locked is stripes, not room-days, so room-day order says nothing
+ * about the order stripes are taken in: two batches in room-day order can
+ * still take the same two stripes in opposite orders and wait on each
+ * other until the timeout. {@link #lockAll} therefore takes the distinct
+ * stripes of a batch in stripe index order.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.lock.type", havingValue = "striped", matchIfMissing = true)
+public class StripedBookingLock implements BookingLock {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutNanos;
+    private final Timer waitTimer;
+
+    public StripedBookingLock(MeterRegistry meterRegistry,
+            @Value("${app.booking.lock.stripes:1024}") int stripeCount,
+            @Value("${app.booking.lock.timeout:5s}") Duration timeout) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("app.booking.lock.stripes must be a power of two: " + stripeCount);
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = timeout.toNanos();
+        this.waitTimer = Timer.builder("booking.lock.wait").tag("type", "striped").register(meterRegistry);
+    }
+
+    @Override
+    public void lock(Long roomId, LocalDate date) {
+        requireTransaction();
+        acquire(stripes[stripeIndex(roomId, date)]);
+    }
+
+    @Override
+    public void lockAll(Collection<RoomDay> roomDays) {
+        requireTransaction();
+        SortedSet<Integer> indices = new TreeSet<>();
+        roomDays.forEach(roomDay -> indices.add(stripeIndex(roomDay.roomId(), roomDay.date())));
+        indices.forEach(index -> acquire(stripes[index]));
+    }
+
+    ReentrantLock stripeFor(Long roomId, LocalDate date) {
+        return stripes[stripeIndex(roomId, date)];
+    }
+
+    int stripeIndex(Long roomId, LocalDate date) {
+        int hash = Objects.hash(roomId, date);
+        hash ^= hash >>> 16;
+        return hash & (stripes.length - 1);
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking locks must be taken inside a transaction");
+        }
+    }
+
+    private void acquire(ReentrantLock stripe) {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = stripe.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "BOOKING_LOCK_TIMEOUT");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+}
@@ -1,28 +1,95 @@
 package ee.futu.booking.web;
 
 import ee.futu.booking.service.AvailabilityService;
+import ee.futu.booking.service.AvailabilityVersions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/availability")
 public class AvailabilityController {
 
     private final AvailabilityService availabilityService;
+    private final AvailabilityVersions availabilityVersions;
+    private final AvailabilityStreamBroadcaster streamBroadcaster;
+    private final Duration monthMaxAge;
 
-    public AvailabilityController(AvailabilityService availabilityService) {
+    public AvailabilityController(AvailabilityService availabilityService,
+            AvailabilityVersions availabilityVersions,
+            AvailabilityStreamBroadcaster streamBroadcaster,
+            @Value("${app.availability.month.max-age:60s}") Duration monthMaxAge) {
         this.availabilityService = availabilityService;
+        this.availabilityVersions = availabilityVersions;
+        this.streamBroadcaster = streamBroadcaster;
+        this.monthMaxAge = monthMaxAge;
     }
 
     @GetMapping
     public ResponseEntity<AvailabilityResponse> getAvailability(
             @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-            @RequestParam("roomId") Long roomId) {
+            @RequestParam("roomId") Long roomId,
+            WebRequest request) {
+
+        // Answer If-None-Match from the change counter alone; 304 is already written when this returns true
+        String etag = availabilityVersions.etag(roomId, date);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
 
         AvailabilityResponse response = availabilityService.getAvailability(roomId, date);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(response);
+    }
+
+    @GetMapping("/range")
+    public ResponseEntity<AvailabilityRangeResponse> getAvailabilityRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "roomIds", required = false) List<Long> roomIds) {
+
+        AvailabilityRangeResponse response = availabilityService.getAvailabilityRange(from, to, roomIds);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/next")
+    public ResponseEntity<NextAvailabilityResponse> getNextAvailable(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "roomIds", required = false) List<Long> roomIds,
+            @RequestParam(value = "limit", defaultValue = "5") int limit) {
+
+        NextAvailabilityResponse response = availabilityService.findNextAvailable(from, roomIds, limit);
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/month")
+    public ResponseEntity<MonthAvailabilityResponse> getMonthAvailability(
+            @RequestParam("year") int year,
+            @RequestParam("month") int month,
+            @RequestParam("roomId") Long roomId) {
+
+        MonthAvailabilityResponse response = availabilityService.getMonthAvailability(roomId, year, month);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(monthMaxAge).cachePublic())
+                .body(response);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam("roomId") Long roomId) {
+
+        return streamBroadcaster.subscribe(roomId, date);
+    }
 }
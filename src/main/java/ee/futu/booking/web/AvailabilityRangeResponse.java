@@ -0,0 +1,43 @@
+package ee.futu.booking.web;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class AvailabilityRangeResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private List<AvailabilityResponse> days;
+
+    public AvailabilityRangeResponse() {
+    }
+
+    public AvailabilityRangeResponse(LocalDate from, LocalDate to, List<AvailabilityResponse> days) {
+        this.from = from;
+        this.to = to;
+        this.days = days;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public List<AvailabilityResponse> getDays() {
+        return days;
+    }
+
+    public void setDays(List<AvailabilityResponse> days) {
+        this.days = days;
+    }
+}
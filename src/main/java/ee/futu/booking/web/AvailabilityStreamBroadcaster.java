@@ -0,0 +1,275 @@
+package ee.futu.booking.web;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.service.AvailabilityService;
+import ee.futu.booking.service.BookingChangedEvent;
+import ee.futu.booking.service.RoomDay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Fans committed booking changes out to SSE subscribers of the affected
+ * room-day. Connections are held by servlet async support, so idle clients
+ * cost no thread; all sends run on a small shared pool.
+ *
+ * Changes to a room-day are coalesced for a short window and availability is
+ * then recomputed once from the database, however many clients listen. Each
+ * subscriber keeps only its latest unsent message, so a slow client skips
+ * intermediate states instead of queueing them. DRAFT holds seen in events
+ * schedule a refresh when they lapse, so freed slots show up without a write.
+ *
+ * Sends block while the client's socket buffer is full. A send still running
+ * after {@code send-timeout} drops the subscriber and interrupts the sending
+ * thread, so a client that stopped reading cannot hold a pool thread for long
+ * and the client reconnects to start over.
+ */
+@Component
+public class AvailabilityStreamBroadcaster {
+
+    // Event builders are single use, so subscribers hold factories rather than built events
+    private static final Supplier<SseEmitter.SseEventBuilder> HEARTBEAT = () -> SseEmitter.event().comment("heartbeat");
+
+    private final AvailabilityService availabilityService;
+    private final long timeoutMillis;
+    private final long coalesceMillis;
+    private final long sendTimeoutMillis;
+
+    private final Map<RoomDay, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<RoomDay> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService timer;
+    private final Counter slowSubscribers;
+
+    public AvailabilityStreamBroadcaster(AvailabilityService availabilityService, MeterRegistry meterRegistry,
+            @Value("${app.availability.stream.timeout:30m}") Duration timeout,
+            @Value("${app.availability.stream.heartbeat:15s}") Duration heartbeat,
+            @Value("${app.availability.stream.coalesce:100ms}") Duration coalesce,
+            @Value("${app.availability.stream.threads:4}") int threads,
+            @Value("${app.availability.stream.send-timeout:5s}") Duration sendTimeout) {
+        this.availabilityService = availabilityService;
+        this.timeoutMillis = timeout.toMillis();
+        this.coalesceMillis = coalesce.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        this.senders = Executors.newFixedThreadPool(threads, daemonThreads("availability-stream-"));
+        // Send deadlines are cancelled far more often than they fire
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                daemonThreads("availability-stream-timer-"));
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+        this.timer.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+        Gauge.builder("availability.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        this.slowSubscribers = Counter.builder("availability.stream.dropped").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long roomId, LocalDate date) {
+        return subscribe(roomId, date, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Long roomId, LocalDate date, SseEmitter emitter) {
+        RoomDay key = new RoomDay(roomId, date);
+        Subscriber subscriber = new Subscriber(key, emitter);
+
+        subscribers.compute(key, (k, set) -> {
+            Set<Subscriber> target = set == null ? ConcurrentHashMap.newKeySet() : set;
+            target.add(subscriber);
+            return target;
+        });
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(key, subscriber));
+        emitter.onTimeout(() -> unsubscribe(key, subscriber));
+        emitter.onError(e -> unsubscribe(key, subscriber));
+
+        AvailabilityResponse snapshot = availabilityService.getAvailability(roomId, date);
+        subscriber.offer(() -> availabilityEvent(snapshot));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        RoomDay key = event.roomDay();
+        if (!subscribers.containsKey(key)) {
+            return;
+        }
+        if (event.status() == BookingStatus.DRAFT && event.expiresAt() != null) {
+            long delay = Duration.between(LocalDateTime.now(), event.expiresAt()).toMillis();
+            timer.schedule(() -> schedulePublish(key), Math.max(0, delay) + coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+        schedulePublish(key);
+    }
+
+    int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void schedulePublish(RoomDay key) {
+        if (pending.add(key)) {
+            timer.schedule(() -> senders.execute(() -> publish(key)), coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish(RoomDay key) {
+        // Clear first so that a change arriving while we read is published again
+        pending.remove(key);
+        Set<Subscriber> listeners = subscribers.get(key);
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+
+        // Read straight from the database: the caches are refreshed by their own
+        // listeners for the same event, which may not have run yet
+        List<AvailabilityResponse> days = availabilityService
+                .getAvailabilityRange(key.date(), key.date(), List.of(key.roomId())).getDays();
+        AvailabilityResponse availability = days.get(0);
+        listeners.forEach(subscriber -> subscriber.offer(() -> availabilityEvent(availability)));
+    }
+
+    private void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::heartbeat));
+    }
+
+    private void unsubscribe(RoomDay key, Subscriber subscriber) {
+        subscribers.computeIfPresent(key, (k, set) -> {
+            if (set.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder availabilityEvent(AvailabilityResponse availability) {
+        return SseEmitter.event().name("availability").data(availability);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+        private final RoomDay key;
+        private final SseEmitter emitter;
+        private final AtomicReference<Supplier<SseEmitter.SseEventBuilder>> latest = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // The thread inside emitter.send, guarded by this; cleared by whichever of the send and its
+        // deadline ends first
+        private Thread writer;
+        private volatile boolean dropped;
+
+        private Subscriber(RoomDay key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void offer(Supplier<SseEmitter.SseEventBuilder> message) {
+            latest.set(message);
+            drainLater();
+        }
+
+        void heartbeat() {
+            // Anything already pending keeps the connection alive just as well
+            if (latest.compareAndSet(null, HEARTBEAT)) {
+                drainLater();
+            }
+        }
+
+        private void drainLater() {
+            if (!dropped && sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Supplier<SseEmitter.SseEventBuilder> message;
+                while (!dropped && (message = latest.getAndSet(null)) != null) {
+                    send(message.get());
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // An offer may have raced with the end of the loop above
+            if (latest.get() != null) {
+                drainLater();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            Thread thread = Thread.currentThread();
+            synchronized (this) {
+                writer = thread;
+            }
+            ScheduledFuture<?> deadline = timer.schedule(() -> drop(thread), sendTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+            try {
+                emitter.send(event);
+            } finally {
+                deadline.cancel(false);
+                synchronized (this) {
+                    if (writer != thread) {
+                        // The deadline won: clear its interrupt before the thread goes back to the pool
+                        Thread.interrupted();
+                        throw new InterruptedIOException("Send to availability subscriber timed out");
+                    }
+                    writer = null;
+                }
+            }
+        }
+
+        private void drop(Thread thread) {
+            synchronized (this) {
+                if (writer != thread) {
+                    return;
+                }
+                writer = null;
+                dropped = true;
+                unsubscribe(key, this);
+                thread.interrupt();
+            }
+            slowSubscribers.increment();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ee.futu.booking.web;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class AvailableSlot {
+    private LocalDate date;
+    private Long roomId;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Integer priceCents;
+
+    public AvailableSlot() {
+    }
+
+    public AvailableSlot(LocalDate date, Long roomId, LocalTime startTime, LocalTime endTime, Integer priceCents) {
+        this.date = date;
+        this.roomId = roomId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.priceCents = priceCents;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(Long roomId) {
+        this.roomId = roomId;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public Integer getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(Integer priceCents) {
+        this.priceCents = priceCents;
+    }
+}
@@ -45,6 +45,12 @@ public class BookingController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/hold/batch")
+    public ResponseEntity<HoldBatchResponse> holdBookings(@Valid @RequestBody HoldBatchRequest request) {
+        HoldBatchResponse response = bookingService.holdBookings(request.getSlots());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @PostMapping("/{id}/confirm")
     public ResponseEntity<BookingResponse> confirmBooking(@PathVariable Long id,
             @Valid @RequestBody ConfirmRequest request) {
@@ -0,0 +1,22 @@
+package ee.futu.booking.web;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class HoldBatchRequest {
+
+    @NotEmpty
+    @Size(max = 10)
+    private List<@Valid HoldRequest> slots;
+
+    public List<HoldRequest> getSlots() {
+        return slots;
+    }
+
+    public void setSlots(List<HoldRequest> slots) {
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,32 @@
+package ee.futu.booking.web;
+
+import java.util.List;
+
+public class HoldBatchResponse {
+    private List<BookingResponse> bookings;
+    private int totalPriceCents;
+
+    public HoldBatchResponse() {
+    }
+
+    public HoldBatchResponse(List<BookingResponse> bookings, int totalPriceCents) {
+        this.bookings = bookings;
+        this.totalPriceCents = totalPriceCents;
+    }
+
+    public List<BookingResponse> getBookings() {
+        return bookings;
+    }
+
+    public void setBookings(List<BookingResponse> bookings) {
+        this.bookings = bookings;
+    }
+
+    public int getTotalPriceCents() {
+        return totalPriceCents;
+    }
+
+    public void setTotalPriceCents(int totalPriceCents) {
+        this.totalPriceCents = totalPriceCents;
+    }
+}
@@ -0,0 +1,274 @@
+package ee.futu.booking.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.futu.booking.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Makes the booking and payment POST endpoints safe to retry: a request
+ * with an {@code Idempotency-Key} header runs once, and repeats of it within
+ * the TTL get the stored response back (marked {@code Idempotent-Replayed}).
+ * Responses that say nothing final about the request are not stored, so
+ * those can be retried: 5xx, 408, 429, and 409 for a lost race
+ * ({@code CONCURRENT_MODIFICATION}, {@code DATA_CONFLICT}).
+ * Reusing a key with a different body is answered with 422.
+ *
+ * Keys are scoped by caller: the authenticated principal, else the
+ * {@code X-Client-Id} header, else the remote address. Only the principal
+ * separates callers reliably. The header is whatever the client sends,
+ * and behind a load balancer every client without it shares the
+ * balancer's address, so for those callers the scope is the endpoint
+ * alone. A stored response is still only replayed for the same key with
+ * the same request body, which a caller can only send if it already knows
+ * the request it would be replaying.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_CALLER_LENGTH = 100;
+    private static final int COMPLETE_ATTEMPTS = 3;
+    private static final Set<String> TRANSIENT_CONFLICTS = Set.of("CONCURRENT_MODIFICATION", "DATA_CONFLICT");
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, Set<String> paths) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.paths = paths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !paths.contains(pathOf(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY");
+            return;
+        }
+
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String endpoint = pathOf(request);
+        String caller = callerOf(request);
+        String requestHash = sha256(body);
+
+        IdempotencyStore.Decision decision = store.begin(endpoint, caller, key, requestHash);
+        switch (decision.outcome()) {
+            case REPLAY -> replay(decision.response(), response);
+            case MISMATCH -> writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED");
+            case IN_PROGRESS -> writeError(request, response, HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_PROGRESS");
+            case EXECUTE -> execute(new CachedBodyRequest(request, body), response, chain, endpoint, caller, key,
+                    requestHash);
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+            String endpoint, String caller, String key, String requestHash) throws ServletException, IOException {
+        ContentCachingResponseWrapper recorded = new ContentCachingResponseWrapper(response);
+        boolean ran = false;
+        try {
+            chain.doFilter(request, recorded);
+            ran = true;
+        } finally {
+            if (!ran) {
+                store.release(endpoint, caller, key);
+            }
+        }
+        if (isFinal(recorded)) {
+            complete(endpoint, caller, key, requestHash, recorded);
+        } else {
+            store.release(endpoint, caller, key);
+        }
+        recorded.copyBodyToResponse();
+    }
+
+    /**
+     * Stores the response, retrying briefly. The request has taken effect by
+     * now, so the key is never released from here: if storing keeps
+     * failing, it stays claimed and retries are answered as in progress.
+     */
+    private void complete(String endpoint, String caller, String key, String requestHash,
+            ContentCachingResponseWrapper recorded) {
+        String body = new String(recorded.getContentAsByteArray(), StandardCharsets.UTF_8);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                store.complete(endpoint, caller, key, requestHash, recorded.getStatus(), recorded.getContentType(),
+                        body);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= COMPLETE_ATTEMPTS || !pause(attempt)) {
+                    store.abandon(endpoint, caller, key);
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isFinal(ContentCachingResponseWrapper recorded) {
+        int status = recorded.getStatus();
+        if (status >= 500 || status == HttpStatus.REQUEST_TIMEOUT.value()
+                || status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return false;
+        }
+        return status != HttpStatus.CONFLICT.value()
+                || !TRANSIENT_CONFLICTS.contains(codeOf(recorded.getContentAsByteArray()));
+    }
+
+    private String codeOf(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("code").asText(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean pause(int attempt) {
+        try {
+            Thread.sleep(100L * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void replay(IdempotencyStore.Stored stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            response.getOutputStream().write(stored.body().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String code)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ApiErrorResponse(status.value(), code, code, request.getRequestURI(), Instant.now()));
+    }
+
+    /**
+     * The path within the application, so that a context path does not
+     * keep the configured paths from matching.
+     */
+    private static String pathOf(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+    }
+
+    private static String callerOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        String caller;
+        if (principal != null) {
+            caller = "user:" + principal.getName();
+        } else if (clientId != null && !clientId.isBlank()) {
+            caller = "client:" + clientId;
+        } else {
+            caller = "addr:" + request.getRemoteAddr();
+        }
+        return caller.length() <= MAX_CALLER_LENGTH
+                ? caller
+                : "sha256:" + sha256(caller.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lets the body be read again downstream after it was hashed here.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The body is all in memory already, so it can be read through at once
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ee.futu.booking.web;
+
+/**
+ * Per-day slot counts for one room and month. Index 0 of each array is the
+ * first day of the month.
+ */
+public class MonthAvailabilityResponse {
+    private int year;
+    private int month;
+    private Long roomId;
+    private int[] totalSlots;
+    private int[] freeSlots;
+
+    public MonthAvailabilityResponse() {
+    }
+
+    public MonthAvailabilityResponse(int year, int month, Long roomId, int[] totalSlots, int[] freeSlots) {
+        this.year = year;
+        this.month = month;
+        this.roomId = roomId;
+        this.totalSlots = totalSlots;
+        this.freeSlots = freeSlots;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public void setMonth(int month) {
+        this.month = month;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(Long roomId) {
+        this.roomId = roomId;
+    }
+
+    public int[] getTotalSlots() {
+        return totalSlots;
+    }
+
+    public void setTotalSlots(int[] totalSlots) {
+        this.totalSlots = totalSlots;
+    }
+
+    public int[] getFreeSlots() {
+        return freeSlots;
+    }
+
+    public void setFreeSlots(int[] freeSlots) {
+        this.freeSlots = freeSlots;
+    }
+}
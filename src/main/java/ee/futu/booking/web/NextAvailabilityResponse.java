@@ -0,0 +1,33 @@
+package ee.futu.booking.web;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class NextAvailabilityResponse {
+    private LocalDate from;
+    private List<AvailableSlot> slots;
+
+    public NextAvailabilityResponse() {
+    }
+
+    public NextAvailabilityResponse(LocalDate from, List<AvailableSlot> slots) {
+        this.from = from;
+        this.slots = slots;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public List<AvailableSlot> getSlots() {
+        return slots;
+    }
+
+    public void setSlots(List<AvailableSlot> slots) {
+        this.slots = slots;
+    }
+}
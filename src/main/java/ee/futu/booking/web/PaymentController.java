@@ -1,6 +1,8 @@
 package ee.futu.booking.web;
 
+import ee.futu.booking.service.PaymentInbox;
 import ee.futu.booking.service.PaymentService;
+import ee.futu.booking.service.ProcessedWebhookEvents;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,9 +16,14 @@ import org.springframework.web.bind.annotation.RestController;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentInbox paymentInbox;
+    private final ProcessedWebhookEvents processedWebhookEvents;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentInbox paymentInbox,
+            ProcessedWebhookEvents processedWebhookEvents) {
         this.paymentService = paymentService;
+        this.paymentInbox = paymentInbox;
+        this.processedWebhookEvents = processedWebhookEvents;
     }
 
     @PostMapping("/start")
@@ -25,9 +32,28 @@ public class PaymentController {
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    /**
+     * Accepts the event for asynchronous processing; it is durable once
+     * this returns 202. A redelivery of an event already applied is
+     * acknowledged with 200 and not queued again.
+     */
     @PostMapping("/webhook")
     public ResponseEntity<Void> handlePaymentWebhook(@Valid @RequestBody PaymentWebhookRequest request) {
-        paymentService.handlePaymentWebhook(request);
-        return ResponseEntity.ok().build();
+        if (processedWebhookEvents.isProcessed(request)) {
+            return ResponseEntity.ok().build();
+        }
+        paymentInbox.append(request);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Applies a batch of events synchronously in one transaction and
+     * reports the outcome of each, in request order. A rejected event does
+     * not affect the others.
+     */
+    @PostMapping("/webhook/batch")
+    public ResponseEntity<PaymentWebhookBatchResponse> handlePaymentWebhooks(
+            @Valid @RequestBody PaymentWebhookBatchRequest request) {
+        return ResponseEntity.ok(new PaymentWebhookBatchResponse(paymentService.handlePaymentWebhooks(request.getEvents())));
     }
 }
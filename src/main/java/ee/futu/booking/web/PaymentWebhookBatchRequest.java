@@ -0,0 +1,22 @@
+package ee.futu.booking.web;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class PaymentWebhookBatchRequest {
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid PaymentWebhookRequest> events;
+
+    public List<PaymentWebhookRequest> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<PaymentWebhookRequest> events) {
+        this.events = events;
+    }
+}
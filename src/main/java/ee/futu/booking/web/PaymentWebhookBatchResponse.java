@@ -0,0 +1,22 @@
+package ee.futu.booking.web;
+
+import java.util.List;
+
+public class PaymentWebhookBatchResponse {
+    private List<PaymentWebhookResult> results;
+
+    public PaymentWebhookBatchResponse() {
+    }
+
+    public PaymentWebhookBatchResponse(List<PaymentWebhookResult> results) {
+        this.results = results;
+    }
+
+    public List<PaymentWebhookResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<PaymentWebhookResult> results) {
+        this.results = results;
+    }
+}
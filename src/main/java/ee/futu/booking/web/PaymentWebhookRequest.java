@@ -1,6 +1,7 @@
 package ee.futu.booking.web;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 
 public class PaymentWebhookRequest {
 
@@ -8,8 +9,13 @@ public class PaymentWebhookRequest {
     private String paymentReference;
 
     @NotBlank
+    @Size(max = 32)
     private String event;
 
+    // Optional provider event id, used to recognise redeliveries
+    @Size(min = 1, max = 100)
+    private String eventId;
+
     public String getPaymentReference() {
         return paymentReference;
     }
@@ -25,4 +31,12 @@ public class PaymentWebhookRequest {
     public void setEvent(String event) {
         this.event = event;
     }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
 }
@@ -0,0 +1,76 @@
+package ee.futu.booking.web;
+
+/**
+ * What became of one event of a webhook batch.
+ */
+public class PaymentWebhookResult {
+
+    public enum Outcome {
+        /** The event moved the booking to {@code bookingStatus}. */
+        APPLIED,
+        /** The booking was already confirmed or cancelled; nothing changed. */
+        IGNORED,
+        /** The event was applied before, in this batch or earlier. */
+        DUPLICATE,
+        /** The event could not be applied; {@code error} says why. */
+        REJECTED
+    }
+
+    private String paymentReference;
+    private String eventId;
+    private Outcome outcome;
+    private String bookingStatus;
+    private String error;
+
+    public PaymentWebhookResult() {
+    }
+
+    public PaymentWebhookResult(String paymentReference, String eventId, Outcome outcome, String bookingStatus,
+            String error) {
+        this.paymentReference = paymentReference;
+        this.eventId = eventId;
+        this.outcome = outcome;
+        this.bookingStatus = bookingStatus;
+        this.error = error;
+    }
+
+    public String getPaymentReference() {
+        return paymentReference;
+    }
+
+    public void setPaymentReference(String paymentReference) {
+        this.paymentReference = paymentReference;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public String getBookingStatus() {
+        return bookingStatus;
+    }
+
+    public void setBookingStatus(String bookingStatus) {
+        this.bookingStatus = bookingStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,10 @@
+-- One row per cluster-wide scheduled job. The owner holds the job until lease_until;
+-- fencing_token goes up whenever another instance takes it over, so writes made under
+-- a lease that has since been lost can be refused.
+CREATE TABLE scheduler_lock (
+  name VARCHAR(64) PRIMARY KEY,
+  owner VARCHAR(255) NOT NULL,
+  lease_until TIMESTAMP NOT NULL,
+  fencing_token BIGINT NOT NULL,
+  last_run_at TIMESTAMP
+);
@@ -0,0 +1,18 @@
+-- Payment provider webhooks as received, drained asynchronously by PaymentInbox.
+-- status: PENDING (waiting, possibly until next_attempt_at), PROCESSING (claimed until
+-- locked_until), DONE, or DEAD after a permanent failure or too many attempts.
+CREATE TABLE payment_inbox (
+  id BIGSERIAL PRIMARY KEY,
+  payment_reference VARCHAR(100) NOT NULL,
+  payload VARCHAR NOT NULL,
+  status VARCHAR(20) NOT NULL,
+  attempts INTEGER NOT NULL DEFAULT 0,
+  received_at TIMESTAMP NOT NULL,
+  next_attempt_at TIMESTAMP NOT NULL,
+  locked_until TIMESTAMP,
+  processed_at TIMESTAMP,
+  last_error VARCHAR(500)
+);
+
+CREATE INDEX idx_payment_inbox_status_next_attempt ON payment_inbox (status, next_attempt_at);
+CREATE INDEX idx_payment_inbox_reference ON payment_inbox (payment_reference, id);
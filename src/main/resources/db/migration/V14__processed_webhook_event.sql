@@ -0,0 +1,9 @@
+-- Payment webhook events already applied, so at-least-once redeliveries can be acknowledged
+-- without loading the booking. event_key is the provider's event id when it sends one.
+CREATE TABLE processed_webhook_event (
+  event_key VARCHAR(150) PRIMARY KEY,
+  payment_reference VARCHAR(100) NOT NULL,
+  processed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_processed_webhook_event_processed_at ON processed_webhook_event (processed_at);
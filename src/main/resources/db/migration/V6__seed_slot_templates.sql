@@ -0,0 +1,26 @@
+-- Seed the slot schedule that used to be hardcoded in SlotRules.
+-- Mon-Thu: 2 evening slots at 210 EUR; Fri: same slots at 260 EUR; Sat-Sun: 4 slots at 260 EUR.
+-- Skipped when templates were already entered by hand.
+INSERT INTO slot_template (weekday, slot_index, start_time, end_time, price_cents, active)
+SELECT v.weekday, v.slot_index, v.start_time, v.end_time, v.price_cents, TRUE
+FROM (VALUES
+  (1, 1, TIME '16:00:00', TIME '18:30:00', 21000),
+  (1, 2, TIME '19:00:00', TIME '21:30:00', 21000),
+  (2, 1, TIME '16:00:00', TIME '18:30:00', 21000),
+  (2, 2, TIME '19:00:00', TIME '21:30:00', 21000),
+  (3, 1, TIME '16:00:00', TIME '18:30:00', 21000),
+  (3, 2, TIME '19:00:00', TIME '21:30:00', 21000),
+  (4, 1, TIME '16:00:00', TIME '18:30:00', 21000),
+  (4, 2, TIME '19:00:00', TIME '21:30:00', 21000),
+  (5, 1, TIME '16:00:00', TIME '18:30:00', 26000),
+  (5, 2, TIME '19:00:00', TIME '21:30:00', 26000),
+  (6, 1, TIME '10:00:00', TIME '12:30:00', 26000),
+  (6, 2, TIME '13:00:00', TIME '15:30:00', 26000),
+  (6, 3, TIME '16:00:00', TIME '18:30:00', 26000),
+  (6, 4, TIME '19:00:00', TIME '21:30:00', 26000),
+  (7, 1, TIME '10:00:00', TIME '12:30:00', 26000),
+  (7, 2, TIME '13:00:00', TIME '15:30:00', 26000),
+  (7, 3, TIME '16:00:00', TIME '18:30:00', 26000),
+  (7, 4, TIME '19:00:00', TIME '21:30:00', 26000)
+) AS v (weekday, slot_index, start_time, end_time, price_cents)
+WHERE NOT EXISTS (SELECT 1 FROM slot_template);
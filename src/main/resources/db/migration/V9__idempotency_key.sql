@@ -0,0 +1,17 @@
+-- Responses of POST requests sent with an Idempotency-Key header, replayed on retries until expires_at.
+-- response_status is NULL while the first request is still running. Keys are chosen by clients,
+-- so they are scoped by caller as well as endpoint.
+CREATE TABLE idempotency_key (
+  endpoint VARCHAR(100) NOT NULL,
+  caller VARCHAR(100) NOT NULL,
+  idempotency_key VARCHAR(64) NOT NULL,
+  request_hash VARCHAR(64) NOT NULL,
+  response_status INTEGER,
+  response_content_type VARCHAR(100),
+  response_body VARCHAR,
+  created_at TIMESTAMP NOT NULL,
+  expires_at TIMESTAMP NOT NULL,
+  PRIMARY KEY (endpoint, caller, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_key_expires_at ON idempotency_key (expires_at);
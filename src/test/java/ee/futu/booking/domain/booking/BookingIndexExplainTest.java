@@ -0,0 +1,133 @@
+package ee.futu.booking.domain.booking;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hot availability and conflict reads are served by
+ * idx_booking_blocking_room_date, and the expiry sweep by
+ * idx_booking_temporary_expires_at, once cancelled history dominates the table.
+ * Needs a real PostgreSQL (H2 has no partial indexes), so it only runs when
+ * EXPLAIN_DB_URL points at a scratch database, e.g.
+ * {@code EXPLAIN_DB_URL=jdbc:postgresql://localhost:5432/futu_explain mvn test}.
+ */
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class BookingIndexExplainTest {
+
+    private static final String SCHEMA = "booking_explain";
+    private static final int CANCELLED_ROWS = 1_000_000;
+    private static final int ROOMS = 10;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private static JdbcTemplate jdbc;
+    private static long roomId;
+
+    @BeforeAll
+    static void migrateAndSeed() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getenv("EXPLAIN_DB_URL"),
+                System.getenv().getOrDefault("EXPLAIN_DB_USERNAME", "postgres"),
+                System.getenv().getOrDefault("EXPLAIN_DB_PASSWORD", ""));
+        dataSource.setSchema(SCHEMA);
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO room (name) SELECT 'Room ' || g FROM generate_series(1, ?) g", ROOMS);
+        roomId = jdbc.queryForObject("SELECT min(id) FROM room", Long.class);
+
+        // Cancelled history spread over a year; start times step by one second to stay unique
+        jdbc.update("""
+                INSERT INTO booking (room_id, booking_date, start_time, end_time, status, total_price_cents)
+                SELECT ? + g % ?, DATE '2024-01-01' + (g / ?) % 365,
+                       TIME '10:00' + (g / (? * 365)) * INTERVAL '1 second',
+                       TIME '12:00', 'CANCELLED', 2500
+                FROM generate_series(0, ? - 1) g
+                """, roomId, ROOMS, ROOMS, ROOMS, CANCELLED_ROWS);
+        jdbc.update("""
+                INSERT INTO booking (room_id, booking_date, start_time, end_time, status, expires_at, total_price_cents)
+                VALUES (?, ?, TIME '16:00', TIME '18:00', 'CONFIRMED', NULL, 2500),
+                       (?, ?, TIME '19:00', TIME '21:00', 'DRAFT', now() + INTERVAL '10 minutes', 2500)
+                """, roomId, FIRST_DAY, roomId, FIRST_DAY);
+        jdbc.execute("VACUUM ANALYZE booking");
+    }
+
+    @Test
+    void activeIntervalsForRoomDay_useBlockingIndex() {
+        String plan = explain("""
+                SELECT b.id, b.room_id, b.booking_date, b.start_time, b.end_time, b.status, b.expires_at
+                FROM booking b
+                WHERE b.room_id = ? AND b.booking_date = ?
+                  AND b.status IN ('CONFIRMED', 'DRAFT', 'PENDING_PAYMENT')
+                  AND (b.status = 'CONFIRMED' OR (b.status = 'DRAFT' AND b.expires_at > ?))
+                """, roomId, FIRST_DAY, LocalDateTime.now());
+
+        assertThat(plan).contains("idx_booking_blocking_room_date");
+    }
+
+    @Test
+    void blockingIntervalsForRoomDay_useBlockingIndex() {
+        String plan = explain("""
+                SELECT b.id, b.room_id, b.booking_date, b.start_time, b.end_time, b.status, b.expires_at
+                FROM booking b
+                WHERE b.room_id = ? AND b.booking_date = ?
+                  AND b.status IN ('CONFIRMED', 'DRAFT', 'PENDING_PAYMENT')
+                """, roomId, FIRST_DAY);
+
+        assertThat(plan).contains("idx_booking_blocking_room_date");
+    }
+
+    @Test
+    void activeIntervalsInRange_useBlockingIndex() {
+        String plan = explain("""
+                SELECT b.id, b.room_id, b.booking_date, b.start_time, b.end_time, b.status, b.expires_at
+                FROM booking b
+                WHERE b.room_id IN (?, ?) AND b.booking_date BETWEEN ? AND ?
+                  AND b.status IN ('CONFIRMED', 'DRAFT', 'PENDING_PAYMENT')
+                  AND (b.status = 'CONFIRMED' OR (b.status = 'DRAFT' AND b.expires_at > ?))
+                """, roomId, roomId + 1, FIRST_DAY, FIRST_DAY.plusDays(61), LocalDateTime.now());
+
+        assertThat(plan).contains("idx_booking_blocking_room_date");
+    }
+
+    @Test
+    void expirySweepChunk_usesTemporaryExpiresAtIndex() {
+        String plan = explain("""
+                SELECT id FROM booking
+                WHERE status IN ('DRAFT', 'PENDING_PAYMENT') AND expires_at <= ?
+                ORDER BY expires_at
+                LIMIT 500
+                """, LocalDateTime.now());
+
+        assertThat(plan).contains("idx_booking_temporary_expires_at");
+    }
+
+    @Test
+    void webhookLookupByPaymentReference_usesReferenceIndex() {
+        String plan = explain("SELECT b.id FROM booking b WHERE b.payment_reference = ?", java.util.UUID.randomUUID());
+
+        assertThat(plan).contains("uk_booking_payment_reference");
+    }
+
+    private String explain(String sql, Object... args) {
+        List<String> lines = jdbc.queryForList("EXPLAIN " + sql, String.class, args);
+        return String.join("\n", lines);
+    }
+}
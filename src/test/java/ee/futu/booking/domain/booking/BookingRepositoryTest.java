@@ -5,12 +5,17 @@ import ee.futu.booking.domain.room.RoomRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -44,4 +49,86 @@ class BookingRepositoryTest {
         assertThat(saved.getStartTime()).isEqualTo(LocalTime.of(12, 0));
         assertThat(saved.getEndTime()).isEqualTo(LocalTime.of(14, 0));
     }
+
+    @Test
+    void findActiveIntervalsInRange_returnsBlockingBookingsAcrossRoomsAndDates() {
+        Room room = new Room();
+        room.setName("Party Room");
+        room.setActive(true);
+        room = roomRepository.save(room);
+
+        LocalDate monday = LocalDate.of(2024, 1, 15);
+        LocalDateTime now = LocalDateTime.of(2024, 1, 10, 12, 0);
+
+        bookingRepository.save(booking(room, monday, LocalTime.of(16, 0), BookingStatus.CONFIRMED, null));
+        bookingRepository.save(booking(room, monday.plusDays(1), LocalTime.of(16, 0), BookingStatus.DRAFT,
+                now.plusMinutes(10)));
+        bookingRepository.save(booking(room, monday.plusDays(2), LocalTime.of(16, 0), BookingStatus.DRAFT,
+                now.minusMinutes(10)));
+        bookingRepository.save(booking(room, monday.plusDays(3), LocalTime.of(16, 0), BookingStatus.CANCELLED, null));
+        bookingRepository.save(booking(room, monday.plusDays(10), LocalTime.of(16, 0), BookingStatus.CONFIRMED, null));
+
+        List<BookingInterval> active = bookingRepository.findActiveIntervalsInRange(List.of(room.getId()), monday,
+                monday.plusDays(6), now);
+
+        assertThat(active).extracting(BookingInterval::bookingDate)
+                .containsExactlyInAnyOrder(monday, monday.plusDays(1));
+    }
+
+    @Test
+    void saveAll_allocatesIdsFromSequenceForBatchedHolds() {
+        Room room = new Room();
+        room.setName("Party Room");
+        room.setActive(true);
+        room = roomRepository.save(room);
+
+        LocalDate saturday = LocalDate.of(2024, 1, 20);
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        List<Booking> saved = bookingRepository.saveAll(List.of(
+                booking(room, saturday, LocalTime.of(13, 0), BookingStatus.DRAFT, expiresAt),
+                booking(room, saturday, LocalTime.of(16, 0), BookingStatus.DRAFT, expiresAt)));
+        bookingRepository.flush();
+
+        assertThat(saved).extracting(Booking::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(bookingRepository.findBlockingIntervalsInRange(List.of(room.getId()), saturday, saturday))
+                .extracting(BookingInterval::startTime)
+                .containsExactlyInAnyOrder(LocalTime.of(13, 0), LocalTime.of(16, 0));
+    }
+
+    @Test
+    void findByPaymentReference_matchesUuidReferenceAndRejectsDuplicates() {
+        Room room = new Room();
+        room.setName("Party Room");
+        room.setActive(true);
+        room = roomRepository.save(room);
+        UUID reference = UUID.randomUUID();
+
+        Booking pending = booking(room, LocalDate.of(2024, 1, 15), LocalTime.of(16, 0),
+                BookingStatus.PENDING_PAYMENT, LocalDateTime.now().plusMinutes(10));
+        pending.setPaymentReference(reference);
+        bookingRepository.saveAndFlush(pending);
+
+        assertThat(bookingRepository.findByPaymentReference(reference)).get()
+                .extracting(Booking::getId).isEqualTo(pending.getId());
+        assertThat(bookingRepository.findByPaymentReference(UUID.randomUUID())).isEmpty();
+
+        Booking duplicate = booking(room, LocalDate.of(2024, 1, 16), LocalTime.of(16, 0),
+                BookingStatus.PENDING_PAYMENT, LocalDateTime.now().plusMinutes(10));
+        duplicate.setPaymentReference(reference);
+        assertThatThrownBy(() -> bookingRepository.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private Booking booking(Room room, LocalDate date, LocalTime startTime, BookingStatus status,
+            LocalDateTime expiresAt) {
+        Booking booking = new Booking();
+        booking.setRoom(room);
+        booking.setBookingDate(date);
+        booking.setStartTime(startTime);
+        booking.setEndTime(startTime.plusMinutes(150));
+        booking.setStatus(status);
+        booking.setExpiresAt(expiresAt);
+        booking.setTotalPriceCents(21000);
+        return booking;
+    }
 }
@@ -0,0 +1,102 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.web.AvailabilityResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AvailabilityCache cache;
+    private LocalDate mondayDate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AvailabilityCache(meterRegistry, Duration.ofMinutes(5), 2);
+        mondayDate = LocalDate.of(2024, 1, 15); // Monday
+    }
+
+    @Test
+    void get_secondCallIsServedFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(counter("hit")).isEqualTo(1.0);
+        assertThat(counter("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void onBookingChanged_evictsOnlyThatRoomDay() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+        cache.get(2L, mondayDate, () -> response(2L, loads));
+
+        cache.onBookingChanged(new BookingChangedEvent(1L, mondayDate,
+                LocalTime.of(16, 0), LocalTime.of(18, 30), BookingStatus.CANCELLED, null));
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+        cache.get(2L, mondayDate, () -> response(2L, loads));
+
+        assertThat(loads.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("availability.cache.evictions").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void get_evictionDuringLoad_doesNotCacheStaleResult() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, mondayDate, () -> {
+            // A booking commits while this read is still computing
+            cache.evict(1L, mondayDate);
+            return response(1L, loads);
+        });
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void get_expiredEntry_isReloaded() {
+        cache = new AvailabilityCache(meterRegistry, Duration.ZERO, 2);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+        cache.get(1L, mondayDate, () -> response(1L, loads));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void get_staysWithinMaxSize() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (long roomId = 1; roomId <= 5; roomId++) {
+            long id = roomId;
+            cache.get(id, mondayDate, () -> response(id, loads));
+        }
+
+        assertThat(meterRegistry.get("availability.cache.size").gauge().value()).isLessThanOrEqualTo(2.0);
+    }
+
+    private AvailabilityResponse response(Long roomId, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new AvailabilityResponse(mondayDate, roomId, Collections.emptyList());
+    }
+
+    private double counter(String result) {
+        return meterRegistry.counter("availability.cache.requests", "result", result).count();
+    }
+}
@@ -1,27 +1,39 @@
 package ee.futu.booking.service;
 
 import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingInterval;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
 import ee.futu.booking.domain.room.Room;
+import ee.futu.booking.domain.room.RoomRepository;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
 import ee.futu.booking.web.SlotStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +42,15 @@ class AvailabilityServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
-    @InjectMocks
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private SlotTemplateRepository slotTemplateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private AvailabilityService availabilityService;
 
     private Long roomId;
@@ -41,6 +61,13 @@ class AvailabilityServiceTest {
 
     @BeforeEach
     void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        availabilityService = new AvailabilityService(bookingRepository, roomRepository,
+                new AvailabilityCache(meterRegistry, Duration.ofSeconds(30), 100),
+                new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 30,
+                        Duration.ofSeconds(60), 10_000),
+                new ScheduleEngine(slotTemplateRepository, eventPublisher), HoldRegistry.disabled());
+
         roomId = 1L;
         mondayDate = LocalDate.of(2024, 1, 15); // Monday
         fridayDate = LocalDate.of(2024, 1, 19); // Friday
@@ -53,9 +80,8 @@ class AvailabilityServiceTest {
     @Test
     void getAvailability_monday_returns2SlotsWith210Price() {
         // Given - no bookings for Monday
-        when(bookingRepository.findActiveBookings(
-                eq(roomId), eq(mondayDate), eq(BookingStatus.CONFIRMED), eq(BookingStatus.DRAFT),
-                any(LocalDateTime.class)))
+        when(bookingRepository.findActiveIntervals(
+                eq(roomId), eq(mondayDate), any(LocalDateTime.class)))
                 .thenReturn(Collections.emptyList());
 
         // When
@@ -82,9 +108,8 @@ class AvailabilityServiceTest {
     @Test
     void getAvailability_saturday_returns4SlotsWith260Price() {
         // Given - no bookings for Saturday
-        when(bookingRepository.findActiveBookings(
-                eq(roomId), eq(saturdayDate), eq(BookingStatus.CONFIRMED), eq(BookingStatus.DRAFT),
-                any(LocalDateTime.class)))
+        when(bookingRepository.findActiveIntervals(
+                eq(roomId), eq(saturdayDate), any(LocalDateTime.class)))
                 .thenReturn(Collections.emptyList());
 
         // When
@@ -115,9 +140,8 @@ class AvailabilityServiceTest {
     @Test
     void getAvailability_friday_returns2SlotsWith260Price() {
         // Given - no bookings for Friday
-        when(bookingRepository.findActiveBookings(
-                eq(roomId), eq(fridayDate), eq(BookingStatus.CONFIRMED), eq(BookingStatus.DRAFT),
-                any(LocalDateTime.class)))
+        when(bookingRepository.findActiveIntervals(
+                eq(roomId), eq(fridayDate), any(LocalDateTime.class)))
                 .thenReturn(Collections.emptyList());
 
         // When
@@ -153,10 +177,9 @@ class AvailabilityServiceTest {
         booking.setStatus(BookingStatus.CONFIRMED);
         booking.setTotalPriceCents(21000);
 
-        when(bookingRepository.findActiveBookings(
-                eq(roomId), eq(mondayDate), eq(BookingStatus.CONFIRMED), eq(BookingStatus.DRAFT),
-                any(LocalDateTime.class)))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findActiveIntervals(
+                eq(roomId), eq(mondayDate), any(LocalDateTime.class)))
+                .thenReturn(List.of(BookingInterval.of(booking)));
 
         // When
         var response = availabilityService.getAvailability(roomId, mondayDate);
@@ -183,9 +206,8 @@ class AvailabilityServiceTest {
         booking.setStatus(BookingStatus.CREATED);
         booking.setTotalPriceCents(2500);
 
-        when(bookingRepository.findActiveBookings(
-                eq(roomId), eq(mondayDate), eq(BookingStatus.CONFIRMED), eq(BookingStatus.DRAFT),
-                any(LocalDateTime.class)))
+        when(bookingRepository.findActiveIntervals(
+                eq(roomId), eq(mondayDate), any(LocalDateTime.class)))
                 .thenReturn(Collections.emptyList()); // No blocking bookings
 
         // When
@@ -198,4 +220,151 @@ class AvailabilityServiceTest {
             assertThat(slot.getPriceCents()).isEqualTo(21000);
         });
     }
+
+    @Test
+    void getAvailabilityRange_groupsBookingsByRoomAndDate_withSingleQuery() {
+        // Given - one booking on Saturday in room 1, nothing in room 2
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRoom(room);
+        booking.setBookingDate(saturdayDate);
+        booking.setStartTime(LocalTime.of(13, 0));
+        booking.setEndTime(LocalTime.of(15, 30));
+        booking.setStatus(BookingStatus.CONFIRMED);
+
+        when(bookingRepository.findActiveIntervalsInRange(
+                eq(List.of(1L, 2L)), eq(fridayDate), eq(saturdayDate),
+                any(LocalDateTime.class)))
+                .thenReturn(List.of(BookingInterval.of(booking)));
+
+        // When
+        var response = availabilityService.getAvailabilityRange(fridayDate, saturdayDate, List.of(2L, 1L));
+
+        // Then - 2 rooms x 2 days, ordered by room then date
+        assertThat(response.getDays()).hasSize(4);
+        assertThat(response.getDays()).extracting("roomId").containsExactly(1L, 1L, 2L, 2L);
+        assertThat(response.getDays()).extracting("date")
+                .containsExactly(fridayDate, saturdayDate, fridayDate, saturdayDate);
+
+        var roomOneSaturday = response.getDays().get(1).getSlots();
+        assertThat(roomOneSaturday).extracting("status").containsExactly(
+                SlotStatus.AVAILABLE, SlotStatus.UNAVAILABLE, SlotStatus.AVAILABLE, SlotStatus.AVAILABLE);
+        response.getDays().get(3).getSlots()
+                .forEach(slot -> assertThat(slot.getStatus()).isEqualTo(SlotStatus.AVAILABLE));
+    }
+
+    @Test
+    void getAvailabilityRange_withoutRoomIds_usesActiveRooms() {
+        // Given
+        when(roomRepository.findByActiveTrueOrderById()).thenReturn(List.of(room));
+        when(bookingRepository.findActiveIntervalsInRange(
+                eq(List.of(roomId)), eq(mondayDate), eq(mondayDate),
+                any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        var response = availabilityService.getAvailabilityRange(mondayDate, mondayDate, null);
+
+        // Then
+        assertThat(response.getDays()).hasSize(1);
+        assertThat(response.getDays().get(0).getSlots()).hasSize(2);
+        verify(roomRepository).findByActiveTrueOrderById();
+    }
+
+    @Test
+    void getAvailabilityRange_toBeforeFrom_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.getAvailabilityRange(fridayDate, mondayDate, List.of(roomId)));
+        assertThat(exception.getReason()).isEqualTo("INVALID_DATE_RANGE");
+    }
+
+    @Test
+    void getAvailabilityRange_tooManyDays_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.getAvailabilityRange(mondayDate, mondayDate.plusDays(90), List.of(roomId)));
+        assertThat(exception.getReason()).isEqualTo("DATE_RANGE_TOO_LARGE");
+    }
+
+    @Test
+    void findNextAvailable_skipsBookedSlotsAndStopsAtLimit() {
+        // Given - room 1 has the Monday 16:00 slot booked
+        LocalDate nextMonday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY)).plusWeeks(1);
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRoom(room);
+        booking.setBookingDate(nextMonday);
+        booking.setStartTime(LocalTime.of(16, 0));
+        booking.setEndTime(LocalTime.of(18, 30));
+        booking.setStatus(BookingStatus.CONFIRMED);
+
+        when(bookingRepository.findActiveIntervalsInRange(
+                eq(List.of(roomId)), eq(nextMonday), eq(nextMonday.plusDays(6)),
+                any(LocalDateTime.class)))
+                .thenReturn(List.of(BookingInterval.of(booking)));
+
+        // When
+        var response = availabilityService.findNextAvailable(nextMonday, List.of(roomId), 2);
+
+        // Then - one query for the first chunk is enough
+        assertThat(response.getSlots()).extracting("date").containsExactly(nextMonday, nextMonday.plusDays(1));
+        assertThat(response.getSlots()).extracting("startTime")
+                .containsExactly(LocalTime.of(19, 0), LocalTime.of(16, 0));
+        verify(bookingRepository, times(1)).findActiveIntervalsInRange(any(), any(), any(), any());
+    }
+
+    @Test
+    void findNextAvailable_fromBeyondHorizon_returnsNothingWithoutQuerying() {
+        LocalDate beyondHorizon = LocalDate.now().plusMonths(AvailabilityService.HORIZON_MONTHS).plusDays(1);
+
+        var response = availabilityService.findNextAvailable(beyondHorizon, List.of(roomId), 5);
+
+        assertThat(response.getSlots()).isEmpty();
+        verify(bookingRepository, never()).findActiveIntervalsInRange(any(), any(), any(), any());
+    }
+
+    @Test
+    void findNextAvailable_invalidLimit_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.findNextAvailable(mondayDate, List.of(roomId), 0));
+        assertThat(exception.getReason()).isEqualTo("INVALID_LIMIT");
+    }
+
+    @Test
+    void getMonthAvailability_countsFreeSlotsWithTheDayAvailabilityRule() {
+        // Given - January 2024 starts on a Monday; on Monday a booking off the slot grid, whose
+        // cleanup runs into the 19:00 slot, takes both slots
+        when(bookingRepository.findActiveIntervalsInRange(eq(List.of(roomId)), eq(LocalDate.of(2024, 1, 1)),
+                eq(LocalDate.of(2024, 1, 31)), any(LocalDateTime.class)))
+                .thenReturn(List.of(
+                        new BookingInterval(1L, roomId, mondayDate, LocalTime.of(16, 30), LocalTime.of(18, 45),
+                                BookingStatus.CONFIRMED, null),
+                        new BookingInterval(2L, roomId, saturdayDate, LocalTime.of(10, 0), LocalTime.of(12, 30),
+                                BookingStatus.CONFIRMED, null)));
+
+        // When
+        var response = availabilityService.getMonthAvailability(roomId, 2024, 1);
+
+        // Then
+        assertThat(response.getTotalSlots()).hasSize(31);
+        assertThat(response.getTotalSlots()[0]).isEqualTo(2); // Monday
+        assertThat(response.getTotalSlots()[5]).isEqualTo(4); // Saturday
+        assertThat(response.getFreeSlots()[mondayDate.getDayOfMonth() - 1]).isZero();
+        assertThat(response.getFreeSlots()[saturdayDate.getDayOfMonth() - 1]).isEqualTo(3);
+        assertThat(response.getFreeSlots()[fridayDate.getDayOfMonth() - 1]).isEqualTo(2);
+        verify(bookingRepository, times(1)).findActiveIntervalsInRange(any(), any(), any(), any());
+    }
+
+    @Test
+    void getMonthAvailability_yearOutOfRange_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.getMonthAvailability(roomId, 1_000_000_000, 1));
+        assertThat(exception.getReason()).isEqualTo("INVALID_YEAR");
+    }
+
+    @Test
+    void getMonthAvailability_invalidMonth_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.getMonthAvailability(roomId, 2024, 13));
+        assertThat(exception.getReason()).isEqualTo("INVALID_MONTH");
+    }
 }
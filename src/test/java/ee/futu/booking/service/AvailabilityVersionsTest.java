@@ -0,0 +1,94 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityVersionsTest {
+
+    private AvailabilityVersions versions;
+    private LocalDate mondayDate;
+
+    @BeforeEach
+    void setUp() {
+        versions = new AvailabilityVersions(10_000);
+        mondayDate = LocalDate.of(2024, 1, 15); // Monday
+    }
+
+    @Test
+    void etag_isStableUntilThatRoomDayChanges() {
+        String before = versions.etag(1L, mondayDate);
+        String otherRoom = versions.etag(2L, mondayDate);
+
+        versions.onBookingChanged(event(BookingStatus.CONFIRMED, null));
+
+        assertThat(versions.etag(1L, mondayDate)).isNotEqualTo(before);
+        assertThat(versions.etag(1L, mondayDate)).isEqualTo(versions.etag(1L, mondayDate));
+        assertThat(versions.etag(2L, mondayDate)).isEqualTo(otherRoom);
+    }
+
+    @Test
+    void etag_changesWhenDraftHoldLapsesWithoutWrite() throws InterruptedException {
+        versions.onBookingChanged(event(BookingStatus.DRAFT, LocalDateTime.now().plusNanos(50_000_000)));
+        String whileHeld = versions.etag(1L, mondayDate);
+
+        Thread.sleep(100);
+
+        String afterLapse = versions.etag(1L, mondayDate);
+        assertThat(afterLapse).isNotEqualTo(whileHeld);
+        assertThat(versions.etag(1L, mondayDate)).isEqualTo(afterLapse);
+    }
+
+    @Test
+    void etag_changesAsEachOfSeveralHoldsLapses() throws InterruptedException {
+        versions.onBookingChanged(event(BookingStatus.DRAFT, LocalDateTime.now().plusNanos(50_000_000)));
+        versions.onBookingChanged(event(BookingStatus.DRAFT, LocalDateTime.now().plusNanos(150_000_000)));
+        String whileHeld = versions.etag(1L, mondayDate);
+
+        Thread.sleep(100);
+        String afterFirstLapse = versions.etag(1L, mondayDate);
+        Thread.sleep(100);
+        String afterSecondLapse = versions.etag(1L, mondayDate);
+
+        assertThat(afterFirstLapse).isNotEqualTo(whileHeld);
+        assertThat(afterSecondLapse).isNotIn(whileHeld, afterFirstLapse);
+    }
+
+    @Test
+    void etag_ofDroppedRoomDay_neverRepeatsAnEarlierTag() {
+        versions = new AvailabilityVersions(4);
+        versions.onBookingChanged(event(BookingStatus.CONFIRMED, null));
+        List<String> tags = new ArrayList<>(List.of(versions.etag(1L, mondayDate)));
+
+        // Changes on other rooms push room 1 out of the tracked room-days
+        for (long roomId = 2; roomId <= 20; roomId++) {
+            versions.onBookingChanged(new BookingChangedEvent(roomId, mondayDate, LocalTime.of(16, 0),
+                    LocalTime.of(18, 30), BookingStatus.CONFIRMED, null));
+            String tag = versions.etag(1L, mondayDate);
+            if (!tag.equals(tags.get(tags.size() - 1))) {
+                tags.add(tag);
+            }
+        }
+        versions.onBookingChanged(event(BookingStatus.CONFIRMED, null));
+        tags.add(versions.etag(1L, mondayDate));
+
+        assertThat(tags).hasSizeGreaterThan(2).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void etag_differsAcrossInstances() {
+        assertThat(new AvailabilityVersions(10_000).etag(1L, mondayDate)).isNotEqualTo(versions.etag(1L, mondayDate));
+    }
+
+    private BookingChangedEvent event(BookingStatus status, LocalDateTime expiresAt) {
+        return new BookingChangedEvent(1L, mondayDate, LocalTime.of(16, 0), LocalTime.of(18, 30), status, expiresAt);
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
@@ -29,9 +30,15 @@ class BookingCancellationIntegrationTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private RoomRepository roomRepository;
 
+    @Mock
+    private HoldRegistry holdRegistry;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -122,8 +129,10 @@ class BookingCancellationIntegrationTest {
         // When - cancel the booking
         bookingService.cancelBooking(1L);
 
-        // Then - verify booking was saved with CANCELLED status
+        // Then - verify booking was saved with CANCELLED status and the room-day was announced
         assertThat(existingBooking.getStatus()).isEqualTo(BookingStatus.CANCELLED);
         verify(bookingRepository).save(existingBooking);
+        verify(eventPublisher).publishEvent(new BookingChangedEvent(
+                roomId, mondayDate, LocalTime.of(16, 0), LocalTime.of(18, 30), BookingStatus.CANCELLED, null));
     }
 }
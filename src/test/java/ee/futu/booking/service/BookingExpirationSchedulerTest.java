@@ -1,28 +1,22 @@
 package ee.futu.booking.service;
 
-import ee.futu.booking.domain.booking.Booking;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
-import ee.futu.booking.domain.room.Room;
-import ee.futu.booking.domain.room.RoomRepository;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,57 +26,40 @@ class BookingExpirationSchedulerTest {
     @Mock
     private BookingRepository bookingRepository;
 
-    @InjectMocks
-    private BookingService bookingService;
-
-    private Long roomId;
-    private LocalDateTime now;
+    @Mock
+    private ExpiredBookingSweep expiredBookingSweep;
 
-    @BeforeEach
-    void setUp() {
-        roomId = 1L;
-        now = LocalDateTime.of(2024, 1, 15, 10, 0); // Fixed time for testing
-    }
+    @Mock
+    private SchedulerLease schedulerLease;
 
     @Test
-    void cancelExpiredDrafts_cancelsExpiredDrafts() {
-        // Given - expired draft bookings
-        Booking expiredDraft1 = new Booking();
-        expiredDraft1.setId(1L);
-        expiredDraft1.setStatus(BookingStatus.DRAFT);
-        expiredDraft1.setExpiresAt(now.minusMinutes(1)); // Expired 1 minute ago
-
-        Booking expiredDraft2 = new Booking();
-        expiredDraft2.setId(2L);
-        expiredDraft2.setStatus(BookingStatus.DRAFT);
-        expiredDraft2.setExpiresAt(now.minusMinutes(5)); // Expired 5 minutes ago
-
-        when(bookingRepository.findExpiredDrafts(eq(BookingStatus.DRAFT), any(LocalDateTime.class)))
-                .thenReturn(Arrays.asList(expiredDraft1, expiredDraft2));
-
-        when(bookingRepository.updateStatusByIds(eq(Arrays.asList(1L, 2L)), eq(BookingStatus.CANCELLED)))
-                .thenReturn(2);
-
-        // When
-        bookingService.cancelExpiredDrafts();
-
-        // Then
-        verify(bookingRepository).findExpiredDrafts(eq(BookingStatus.DRAFT), any(LocalDateTime.class));
-        verify(bookingRepository).updateStatusByIds(Arrays.asList(1L, 2L), BookingStatus.CANCELLED);
+    void cancelExpiredHolds_sweepsEveryTemporaryStatusOnceUnderTheLease() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BookingExpirationScheduler scheduler = new BookingExpirationScheduler(bookingRepository, expiredBookingSweep, schedulerLease, meterRegistry);
+        SchedulerLease.Lease lease = new SchedulerLease.Lease(BookingExpirationScheduler.SWEEP_JOB, 3);
+        doAnswer(invocation -> {
+            invocation.<Consumer<SchedulerLease.Lease>>getArgument(1).accept(lease);
+            return true;
+        }).when(schedulerLease).runIfLeader(eq(BookingExpirationScheduler.SWEEP_JOB), any());
+        when(bookingRepository.findOldestLapsedExpiry(any(LocalDateTime.class)))
+                .thenReturn(LocalDateTime.now().minusMinutes(2));
+        when(expiredBookingSweep.cancelExpired(eq(List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT)),
+                any(LocalDateTime.class), eq(lease))).thenReturn(4);
+
+        scheduler.cancelExpiredHolds();
+
+        assertThat(meterRegistry.get("booking.expiry.cancelled").tag("source", "sweep").counter().count())
+                .isEqualTo(4);
+        assertThat(meterRegistry.get("booking.expiry.sweep.duration").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.expiry.backlog.age").gauge().value()).isBetween(119.0, 130.0);
     }
 
     @Test
-    void cancelExpiredDrafts_noExpiredDrafts_doesNothing() {
-        // Given - no expired drafts
-        when(bookingRepository.findExpiredDrafts(eq(BookingStatus.DRAFT), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+    void cancelExpiredHolds_notLeader_doesNothing() {
+        BookingExpirationScheduler scheduler = new BookingExpirationScheduler(bookingRepository, expiredBookingSweep, schedulerLease, new SimpleMeterRegistry());
 
-        // When
-        bookingService.cancelExpiredDrafts();
+        scheduler.cancelExpiredHolds();
 
-        // Then
-        verify(bookingRepository).findExpiredDrafts(eq(BookingStatus.DRAFT), any(LocalDateTime.class));
-        verify(bookingRepository, org.mockito.Mockito.never()).updateStatusByIds(org.mockito.ArgumentMatchers.any(),
-                eq(BookingStatus.CANCELLED));
+        verify(expiredBookingSweep, org.mockito.Mockito.never()).cancelExpired(any(), any(), any());
     }
 }
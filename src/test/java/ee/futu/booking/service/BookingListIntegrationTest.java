@@ -35,6 +35,9 @@ class BookingListIntegrationTest {
     @Mock
     private RoomRepository roomRepository;
 
+    @Mock
+    private HoldRegistry holdRegistry;
+
     @InjectMocks
     private BookingService bookingService;
 
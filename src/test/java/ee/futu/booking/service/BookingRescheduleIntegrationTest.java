@@ -5,13 +5,16 @@ import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
 import ee.futu.booking.domain.room.Room;
 import ee.futu.booking.domain.room.RoomRepository;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
 import ee.futu.booking.web.RescheduleRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
@@ -21,6 +24,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,9 +34,28 @@ class BookingRescheduleIntegrationTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private RoomRepository roomRepository;
 
+    @Spy
+    private ScheduleEngine scheduleEngine = new ScheduleEngine(mock(SlotTemplateRepository.class),
+            mock(ApplicationEventPublisher.class));
+
+    @Mock
+    private BookingLock bookingLock;
+
+    @Mock
+    private OverlapEnforcement overlapEnforcement;
+
+    @Mock
+    private HoldRegistry holdRegistry;
+
+    @Mock
+    private ExpiredBookingSweep expiredBookingSweep;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -70,7 +93,7 @@ class BookingRescheduleIntegrationTest {
         rescheduleRequest.setStartTime(LocalTime.of(19, 0));
 
         when(bookingRepository.findById(1L)).thenReturn(Optional.of(existingBooking));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(any(), any(), any()))
+        when(bookingRepository.findBlockingIntervals(any(), any()))
                 .thenReturn(java.util.Collections.emptyList());
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -1,31 +1,44 @@
 package ee.futu.booking.service;
 
 import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingInterval;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
 import ee.futu.booking.domain.room.Room;
 import ee.futu.booking.domain.room.RoomRepository;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
 import ee.futu.booking.web.BookingRequest;
+import ee.futu.booking.web.BookingResponse;
+import ee.futu.booking.web.HoldBatchResponse;
+import ee.futu.booking.web.HoldRequest;
 import ee.futu.booking.web.RescheduleRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,9 +47,28 @@ class BookingServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private RoomRepository roomRepository;
 
+    @Spy
+    private ScheduleEngine scheduleEngine = new ScheduleEngine(mock(SlotTemplateRepository.class),
+            mock(ApplicationEventPublisher.class));
+
+    @Mock
+    private BookingLock bookingLock;
+
+    @Mock
+    private OverlapEnforcement overlapEnforcement;
+
+    @Mock
+    private HoldRegistry holdRegistry;
+
+    @Mock
+    private ExpiredBookingSweep expiredBookingSweep;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -69,7 +101,7 @@ class BookingServiceTest {
         request.setCustomerPhone("+3725000000");
 
         when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(mondayDate), any()))
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(mondayDate)))
                 .thenReturn(Collections.emptyList());
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
             Booking booking = invocation.getArgument(0);
@@ -131,8 +163,8 @@ class BookingServiceTest {
         existingBooking.setStatus(BookingStatus.CONFIRMED);
 
         when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(mondayDate), any()))
-                .thenReturn(Arrays.asList(existingBooking));
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(mondayDate)))
+                .thenReturn(List.of(BookingInterval.of(existingBooking)));
 
         // When & Then
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
@@ -152,7 +184,7 @@ class BookingServiceTest {
         request.setCustomerPhone("+3725000000");
 
         when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(fridayDate), any()))
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(fridayDate)))
                 .thenReturn(Collections.emptyList());
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
             Booking booking = invocation.getArgument(0);
@@ -179,7 +211,7 @@ class BookingServiceTest {
         request.setCustomerPhone("+3725000000");
 
         when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(mondayDate), any()))
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(mondayDate)))
                 .thenReturn(Collections.emptyList());
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
             Booking booking = invocation.getArgument(0);
@@ -213,7 +245,7 @@ class BookingServiceTest {
         rescheduleRequest.setStartTime(LocalTime.of(19, 0)); // Different slot
 
         when(bookingRepository.findById(1L)).thenReturn(Optional.of(existingBooking));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(fridayDate), any()))
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(fridayDate)))
                 .thenReturn(Collections.emptyList());
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -277,8 +309,8 @@ class BookingServiceTest {
         rescheduleRequest.setStartTime(LocalTime.of(19, 0)); // Conflicts with existing
 
         when(bookingRepository.findById(1L)).thenReturn(Optional.of(existingBooking));
-        when(bookingRepository.findByRoomIdAndBookingDateAndStatusIn(eq(roomId), eq(mondayDate), any()))
-                .thenReturn(Arrays.asList(conflictingBooking));
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(mondayDate)))
+                .thenReturn(List.of(BookingInterval.of(conflictingBooking)));
 
         // When & Then
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
@@ -489,4 +521,113 @@ class BookingServiceTest {
                 () -> bookingService.listBookings(roomId, mondayDate));
         assertThat(exception.getReason()).isEqualTo("Room not found");
     }
+
+    @Test
+    void createBooking_overlapRejectedByDatabase_throwsBookingOverlap() {
+        // Given
+        BookingRequest request = new BookingRequest();
+        request.setRoomId(roomId);
+        request.setDate(mondayDate);
+        request.setStartTime(LocalTime.of(16, 0));
+
+        when(overlapEnforcement.isDatabaseEnforced()).thenReturn(true);
+        when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+        when(bookingRepository.save(any(Booking.class)))
+                .thenThrow(new DataIntegrityViolationException("ex_booking_room_blocking_range"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingService.createBooking(request));
+        assertThat(exception.getReason()).isEqualTo("BOOKING_OVERLAP");
+        verify(expiredBookingSweep).cancelExpiredOn(any(), eq(List.of(new RoomDay(roomId, mondayDate))), any());
+        verify(bookingRepository, never()).findBlockingIntervals(any(), any());
+        verify(bookingLock, never()).lock(any(), any());
+    }
+
+    @Test
+    void createBooking_overlapsActiveHold_throwsBookingOverlap() {
+        // Given
+        BookingRequest request = new BookingRequest();
+        request.setRoomId(roomId);
+        request.setDate(mondayDate);
+        request.setStartTime(LocalTime.of(16, 0));
+
+        BookingInterval hold = new BookingInterval(2L, roomId, mondayDate, LocalTime.of(16, 0),
+                LocalTime.of(18, 0), BookingStatus.PENDING_PAYMENT, LocalDateTime.now().plusMinutes(5));
+        when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+        when(bookingRepository.findBlockingIntervals(eq(roomId), eq(mondayDate))).thenReturn(List.of(hold));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingService.createBooking(request));
+        assertThat(exception.getReason()).isEqualTo("BOOKING_OVERLAP");
+        verify(bookingLock).lock(roomId, mondayDate);
+    }
+
+    @Test
+    void holdBookings_twoRooms_locksBothAtOnceAndChecksOnce() {
+        // Given
+        Room otherRoom = new Room();
+        otherRoom.setId(2L);
+        otherRoom.setName("Other Room");
+        otherRoom.setActive(true);
+
+        HoldRequest second = holdRequest(2L, mondayDate, LocalTime.of(16, 0));
+        HoldRequest first = holdRequest(roomId, mondayDate, LocalTime.of(16, 0));
+
+        when(roomRepository.findAllById(List.of(2L, roomId))).thenReturn(List.of(otherRoom, room));
+        when(bookingRepository.findBlockingIntervalsInRange(List.of(roomId, 2L), mondayDate, mondayDate))
+                .thenReturn(Collections.emptyList());
+        when(bookingRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        HoldBatchResponse response = bookingService.holdBookings(List.of(second, first));
+
+        // Then
+        assertThat(response.getBookings()).extracting(BookingResponse::getStatus).containsOnly("DRAFT");
+        assertThat(response.getTotalPriceCents()).isEqualTo(42000);
+        verify(bookingLock).lockAll(Set.of(new RoomDay(roomId, mondayDate), new RoomDay(2L, mondayDate)));
+        verify(bookingRepository).flush();
+    }
+
+    @Test
+    void holdBookings_oneSlotTaken_holdsNothing() {
+        // Given: two consecutive Saturday slots, the second one taken
+        LocalDate saturday = fridayDate.plusDays(1);
+        HoldRequest free = holdRequest(roomId, saturday, LocalTime.of(13, 0));
+        HoldRequest taken = holdRequest(roomId, saturday, LocalTime.of(16, 0));
+
+        BookingInterval existing = new BookingInterval(5L, roomId, saturday, LocalTime.of(16, 0),
+                LocalTime.of(18, 30), BookingStatus.CONFIRMED, null);
+        when(roomRepository.findAllById(List.of(roomId))).thenReturn(List.of(room));
+        when(bookingRepository.findBlockingIntervalsInRange(List.of(roomId), saturday, saturday))
+                .thenReturn(List.of(existing));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingService.holdBookings(List.of(free, taken)));
+        assertThat(exception.getReason()).isEqualTo("BOOKING_OVERLAP");
+        verify(bookingRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void holdBookings_sameSlotTwice_throwsBookingOverlap() {
+        // Given
+        when(roomRepository.findAllById(List.of(roomId))).thenReturn(List.of(room));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingService.holdBookings(List.of(holdRequest(roomId, mondayDate, LocalTime.of(16, 0)),
+                        holdRequest(roomId, mondayDate, LocalTime.of(16, 0)))));
+        assertThat(exception.getReason()).isEqualTo("BOOKING_OVERLAP");
+        verify(bookingLock, never()).lock(any(), any());
+    }
+
+    private HoldRequest holdRequest(Long roomId, LocalDate date, LocalTime startTime) {
+        HoldRequest request = new HoldRequest();
+        request.setRoomId(roomId);
+        request.setDate(date);
+        request.setStartTime(startTime);
+        return request;
+    }
 }
@@ -0,0 +1,112 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpiredBookingSweepTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Object> published = new ArrayList<>();
+    private ExpiredBookingSweep sweep;
+    private Long roomId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM booking");
+        jdbcTemplate.update("DELETE FROM room");
+        jdbcTemplate.update("INSERT INTO room (name, active) VALUES ('Party Room', TRUE)");
+        roomId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM room", Long.class);
+        sweep = new ExpiredBookingSweep(jdbcTemplate, transactionManager, published::add, 2);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void cancelExpired_drainsBacklogInChunks() {
+        LocalDate date = LocalDate.of(2024, 1, 20);
+        for (int day = 0; day < 5; day++) {
+            insert(date.plusDays(day), BookingStatus.DRAFT, now.minusMinutes(day + 1));
+        }
+        insert(date.plusDays(5), BookingStatus.PENDING_PAYMENT, now.minusMinutes(1));
+        insert(date.plusDays(6), BookingStatus.DRAFT, now.plusMinutes(10));
+        insert(date.plusDays(7), BookingStatus.CONFIRMED, now.minusMinutes(1));
+
+        int cancelled = sweep.cancelExpired(List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT), now);
+
+        assertThat(cancelled).isEqualTo(6);
+        assertThat(statusCounts()).containsEntry("CANCELLED", 6L).containsEntry("DRAFT", 1L)
+                .containsEntry("CONFIRMED", 1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(version) FROM booking WHERE status = 'CANCELLED'",
+                Long.class)).isEqualTo(6);
+        assertThat(published).hasSize(6).allSatisfy(event -> {
+            BookingChangedEvent changed = (BookingChangedEvent) event;
+            assertThat(changed.status()).isEqualTo(BookingStatus.CANCELLED);
+            assertThat(changed.roomId()).isEqualTo(roomId);
+        });
+    }
+
+    @Test
+    void cancelExpired_onlyTouchesRequestedStatuses() {
+        insert(LocalDate.of(2024, 1, 20), BookingStatus.DRAFT, now.minusMinutes(1));
+        insert(LocalDate.of(2024, 1, 21), BookingStatus.PENDING_PAYMENT, now.minusMinutes(1));
+
+        assertThat(sweep.cancelExpired(List.of(BookingStatus.DRAFT), now)).isEqualTo(1);
+        assertThat(statusCounts()).containsEntry("CANCELLED", 1L).containsEntry("PENDING_PAYMENT", 1L);
+    }
+
+    @Test
+    void cancelExpiredOn_onlyTouchesRequestedRoomDaysAndLeavesConfirmedAlone() {
+        LocalDate date = LocalDate.of(2024, 1, 20);
+        insert(date, BookingStatus.DRAFT, now.minusMinutes(1));
+        // Paid just as its hold lapsed; the expiry must not undo the confirmation
+        insert(date, BookingStatus.CONFIRMED, now.minusMinutes(1));
+        insert(date.plusDays(1), BookingStatus.DRAFT, now.minusMinutes(1));
+
+        int cancelled = sweep.cancelExpiredOn(List.of(BookingStatus.DRAFT, BookingStatus.PENDING_PAYMENT),
+                List.of(new RoomDay(roomId, date)), now);
+
+        assertThat(cancelled).isEqualTo(1);
+        assertThat(statusCounts()).containsEntry("CANCELLED", 1L).containsEntry("CONFIRMED", 1L)
+                .containsEntry("DRAFT", 1L);
+        assertThat(published).singleElement()
+                .satisfies(event -> assertThat(((BookingChangedEvent) event).date()).isEqualTo(date));
+    }
+
+    private void insert(LocalDate date, BookingStatus status, LocalDateTime expiresAt) {
+        jdbcTemplate.update("""
+                INSERT INTO booking (room_id, booking_date, start_time, end_time, status, total_price_cents,
+                                     expires_at)
+                VALUES (?, ?, '16:00', '18:30', ?, 26000, ?)
+                """, roomId, date, status.name(), expiresAt);
+    }
+
+    private Map<String, Long> statusCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM booking GROUP BY status",
+                rs -> { counts.put(rs.getString(1), rs.getLong(2)); });
+        return counts;
+    }
+}
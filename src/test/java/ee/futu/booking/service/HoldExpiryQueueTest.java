@@ -0,0 +1,104 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingInterval;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HoldExpiryQueueTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private BookingExpirationScheduler expirationScheduler;
+
+    private HoldExpiryQueue expiryQueue;
+    private RoomDay roomDay;
+
+    @BeforeEach
+    void setUp() {
+        expiryQueue = new HoldExpiryQueue(bookingRepository, expirationScheduler, new SimpleMeterRegistry(), 100,
+                Duration.ofMillis(100));
+        roomDay = new RoomDay(1L, LocalDate.of(2024, 1, 20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiryQueue.stop();
+    }
+
+    @Test
+    void hold_isCancelledWithinASecondOfExpiry() {
+        when(bookingRepository.findPendingExpiries()).thenReturn(List.of());
+        expiryQueue.start();
+
+        expiryQueue.onBookingChanged(event(BookingStatus.DRAFT, LocalDateTime.now().plusNanos(300_000_000)));
+
+        verify(expirationScheduler, never()).cancelExpiredOn(any());
+        verify(expirationScheduler, timeout(1300)).cancelExpiredOn(Set.of(roomDay));
+    }
+
+    @Test
+    void confirmedBooking_isNotQueued() {
+        expiryQueue.onBookingChanged(event(BookingStatus.CONFIRMED, LocalDateTime.now().plusMinutes(15)));
+        expiryQueue.onBookingChanged(event(BookingStatus.CANCELLED, null));
+
+        assertThat(expiryQueue.size()).isZero();
+    }
+
+    @Test
+    void rebuild_queuesTemporaryBookingsFromTheTable() {
+        when(bookingRepository.findPendingExpiries()).thenReturn(List.of(
+                new BookingInterval(7L, roomDay.roomId(), roomDay.date(), LocalTime.of(10, 0), LocalTime.of(12, 30),
+                        BookingStatus.PENDING_PAYMENT, LocalDateTime.now().minusMinutes(1)),
+                new BookingInterval(8L, 2L, roomDay.date(), LocalTime.of(10, 0), LocalTime.of(12, 30),
+                        BookingStatus.DRAFT, LocalDateTime.now().plusMinutes(10))));
+        when(expirationScheduler.cancelExpiredOn(Set.of(roomDay))).thenReturn(1);
+
+        assertThat(expiryQueue.rebuild()).isEqualTo(2);
+
+        // Only the lapsed one is due
+        assertThat(expiryQueue.expireDue()).isEqualTo(1);
+        assertThat(expiryQueue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void failedCancellation_isRetried() {
+        when(bookingRepository.findPendingExpiries()).thenReturn(List.of());
+        when(expirationScheduler.cancelExpiredOn(Set.of(roomDay)))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(1);
+        expiryQueue.start();
+
+        expiryQueue.onBookingChanged(event(BookingStatus.DRAFT, LocalDateTime.now()));
+
+        verify(expirationScheduler, timeout(1000).times(2)).cancelExpiredOn(Set.of(roomDay));
+    }
+
+    private BookingChangedEvent event(BookingStatus status, LocalDateTime expiresAt) {
+        return new BookingChangedEvent(roomDay.roomId(), roomDay.date(), LocalTime.of(16, 0), LocalTime.of(18, 30),
+                status, expiresAt);
+    }
+}
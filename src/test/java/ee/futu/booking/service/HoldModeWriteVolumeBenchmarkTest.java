@@ -0,0 +1,149 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.room.Room;
+import ee.futu.booking.domain.room.RoomRepository;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
+import ee.futu.booking.web.BookingResponse;
+import ee.futu.booking.web.ConfirmRequest;
+import ee.futu.booking.web.HoldRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Row writes to the booking table for the same hold traffic in both hold
+ * modes: 200 weekend holds of which one in five is confirmed and the rest
+ * lapse and are swept. Every insert counts one write and every update bumps
+ * the row version (bulk expiry updates are versioned too), so
+ * {@code count(*) + sum(version)} is the number of row writes.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HoldModeWriteVolumeBenchmarkTest {
+
+    private static final int ROOMS = 5;
+    private static final int WEEKENDS = 10;
+    private static final int CONFIRM_EVERY = 5;
+    private static final List<LocalTime> WEEKEND_SLOTS = List.of(
+            LocalTime.of(10, 0), LocalTime.of(13, 0), LocalTime.of(16, 0), LocalTime.of(19, 0));
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private SlotTemplateRepository slotTemplateRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private List<Long> roomIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM booking");
+        jdbcTemplate.update("DELETE FROM room");
+        jdbcTemplate.update("DELETE FROM scheduler_lock");
+        roomIds = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            Room room = new Room();
+            room.setName("Room " + i);
+            room.setActive(true);
+            roomIds.add(roomRepository.save(room).getId());
+        }
+    }
+
+    @Test
+    void memoryHolds_writeFarFewerRowsThanDatabaseHolds() throws Exception {
+        long databaseWrites = run("database");
+        jdbcTemplate.update("DELETE FROM booking");
+        long memoryWrites = run("memory");
+
+        assertThat(memoryWrites)
+                .as("booking row writes for %d holds in memory mode, against %d in database mode",
+                        ROOMS * WEEKENDS * WEEKEND_SLOTS.size(), databaseWrites)
+                .isLessThan(databaseWrites / 2);
+    }
+
+    private long run(String holdMode) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HoldRegistry holdRegistry = new HoldRegistry(bookingRepository, dataSource, meterRegistry, holdMode,
+                tempDir.resolve(holdMode + ".wal"));
+        ExpiredBookingSweep expiredBookingSweep = new ExpiredBookingSweep(jdbcTemplate, transactionManager,
+                eventPublisher, 500);
+        BookingService bookingService = new BookingService(bookingRepository, roomRepository, eventPublisher,
+                new ScheduleEngine(slotTemplateRepository, eventPublisher),
+                new StripedBookingLock(meterRegistry, 1024, Duration.ofSeconds(5)),
+                new OverlapEnforcement(dataSource, "auto"), holdRegistry, expiredBookingSweep);
+        BookingExpirationScheduler expirationScheduler = new BookingExpirationScheduler(bookingRepository,
+                expiredBookingSweep,
+                new SchedulerLease(jdbcTemplate, meterRegistry, Duration.ofMinutes(15), "benchmark"), meterRegistry);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        LocalDate saturday = LocalDate.now().plusWeeks(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+        int held = 0;
+        for (int week = 0; week < WEEKENDS; week++) {
+            for (Long roomId : roomIds) {
+                for (LocalTime startTime : WEEKEND_SLOTS) {
+                    HoldRequest request = new HoldRequest();
+                    request.setRoomId(roomId);
+                    request.setDate(saturday.plusWeeks(week));
+                    request.setStartTime(startTime);
+                    BookingResponse hold = tx.execute(status -> bookingService.holdBooking(request));
+
+                    if (held++ % CONFIRM_EVERY == 0) {
+                        ConfirmRequest confirm = new ConfirmRequest();
+                        confirm.setCustomerName("Guest");
+                        confirm.setCustomerEmail("guest@example.com");
+                        confirm.setCustomerPhone("+3725550000");
+                        tx.execute(status -> bookingService.confirmBooking(hold.getId(), confirm));
+                    }
+                }
+            }
+        }
+
+        // Let the unconfirmed holds lapse (expires_at is not versioned, so this is not counted) and sweep them
+        jdbcTemplate.update("UPDATE booking SET expires_at = CURRENT_TIMESTAMP - INTERVAL '1' MINUTE "
+                + "WHERE status = 'DRAFT'");
+        tx.executeWithoutResult(status -> expirationScheduler.cancelExpiredHolds());
+        holdRegistry.close();
+
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) + COALESCE(SUM(version), 0) FROM booking", Long.class);
+    }
+}
@@ -0,0 +1,119 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.domain.room.Room;
+import ee.futu.booking.domain.room.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class HoldRegistryTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TempDir
+    Path tempDir;
+
+    private Path walPath;
+    private Room room;
+    private LocalDate saturday;
+
+    @BeforeEach
+    void setUp() {
+        walPath = tempDir.resolve("holds.wal");
+        room = new Room();
+        room.setName("Party Room");
+        room.setActive(true);
+        room = roomRepository.save(room);
+        saturday = LocalDate.of(2024, 1, 20);
+    }
+
+    @Test
+    void holds_surviveRestartUntilDropped() throws Exception {
+        HoldRegistry registry = registry();
+        HoldRegistry.Hold kept = registry.add(room.getId(), saturday, LocalTime.of(10, 0), LocalTime.of(12, 30),
+                26000, LocalDateTime.now().plusMinutes(15));
+        HoldRegistry.Hold dropped = registry.add(room.getId(), saturday, LocalTime.of(13, 0), LocalTime.of(15, 30),
+                26000, LocalDateTime.now().plusMinutes(15));
+        registry.remove(dropped.id());
+        registry.close();
+
+        HoldRegistry restarted = registry();
+
+        assertThat(restarted.find(kept.id())).contains(kept);
+        assertThat(restarted.find(dropped.id())).isEmpty();
+        assertThat(restarted.activeIntervals(room.getId(), saturday)).hasSize(1);
+        // Compacted at startup down to the live hold
+        assertThat(Files.readAllLines(walPath)).hasSize(1);
+    }
+
+    @Test
+    void lapsedHolds_areNotReplayed() throws Exception {
+        HoldRegistry registry = registry();
+        HoldRegistry.Hold hold = registry.add(room.getId(), saturday, LocalTime.of(10, 0), LocalTime.of(12, 30),
+                26000, LocalDateTime.now().minusSeconds(1));
+        registry.close();
+
+        assertThat(registry().find(hold.id())).isEmpty();
+    }
+
+    @Test
+    void persist_writesDraftRowWithTheHoldId() throws Exception {
+        HoldRegistry registry = registry();
+        HoldRegistry.Hold hold = registry.add(room.getId(), saturday, LocalTime.of(16, 0), LocalTime.of(18, 30),
+                26000, LocalDateTime.now().plusMinutes(15));
+
+        assertThat(registry.persist(hold.id())).isTrue();
+
+        Booking booking = bookingRepository.findById(hold.id()).orElseThrow();
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.DRAFT);
+        assertThat(booking.getStartTime()).isEqualTo(LocalTime.of(16, 0));
+        assertThat(booking.getTotalPriceCents()).isEqualTo(26000);
+        registry.close();
+    }
+
+    @Test
+    void finalLineCutInsideItsLastField_isSkippedOnReplay() throws Exception {
+        HoldRegistry registry = registry();
+        HoldRegistry.Hold kept = registry.add(room.getId(), saturday, LocalTime.of(10, 0), LocalTime.of(12, 30),
+                26000, LocalDateTime.now().plusMinutes(15));
+        HoldRegistry.Hold torn = registry.add(room.getId(), saturday, LocalTime.of(13, 0), LocalTime.of(15, 30),
+                26000, LocalDateTime.now().plusMinutes(15));
+        registry.close();
+        String log = Files.readString(walPath).stripTrailing();
+        // Crash mid-write: the last record ends halfway through its expiry timestamp
+        Files.writeString(walPath, log.substring(0, log.lastIndexOf('T') + 3));
+
+        HoldRegistry restarted = registry();
+
+        assertThat(restarted.find(kept.id())).contains(kept);
+        assertThat(restarted.find(torn.id())).isEmpty();
+        restarted.close();
+    }
+
+    private HoldRegistry registry() {
+        return new HoldRegistry(bookingRepository, dataSource, new SimpleMeterRegistry(), "memory", walPath);
+    }
+}
@@ -0,0 +1,209 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingInterval;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.domain.room.Room;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OccupancyIndex occupancyIndex;
+    private Long roomId;
+    private LocalDate mondayDate;
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        occupancyIndex = new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 30,
+                Duration.ofSeconds(60), 10_000);
+        roomId = 1L;
+        mondayDate = LocalDate.of(2024, 1, 15); // Monday
+
+        room = new Room();
+        room.setId(roomId);
+    }
+
+    @Test
+    void isFree_respectsCleanupBuffer() {
+        givenActiveBookings(List.of(booking(LocalTime.of(16, 0), BookingStatus.CONFIRMED, null)));
+
+        // 16:00-18:30 blocks until 19:00 including cleanup
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isFalse();
+        assertThat(isFree(LocalTime.of(18, 30), LocalTime.of(19, 0))).isFalse();
+        assertThat(isFree(LocalTime.of(19, 0), LocalTime.of(21, 30))).isTrue();
+        // ... and needs its own cleanup before 16:00, as the exclusion constraint has it
+        assertThat(isFree(LocalTime.of(13, 0), LocalTime.of(16, 0))).isFalse();
+        assertThat(isFree(LocalTime.of(13, 0), LocalTime.of(15, 30))).isTrue();
+
+        // Loaded once, then served from the bitmap
+        verify(bookingRepository, times(1)).findActiveIntervals(eq(roomId), eq(mondayDate),
+                any(LocalDateTime.class));
+    }
+
+    @Test
+    void onBookingChanged_blockingBooking_updatesBitmapWithoutReload() {
+        givenActiveBookings(Collections.emptyList());
+        assertThat(isFree(LocalTime.of(19, 0), LocalTime.of(21, 30))).isTrue();
+
+        occupancyIndex.onBookingChanged(new BookingChangedEvent(roomId, mondayDate,
+                LocalTime.of(19, 0), LocalTime.of(21, 30), BookingStatus.CONFIRMED, null));
+
+        assertThat(isFree(LocalTime.of(19, 0), LocalTime.of(21, 30))).isFalse();
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isTrue();
+        verify(bookingRepository, times(1)).findActiveIntervals(any(), any(), any());
+    }
+
+    @Test
+    void onBookingChanged_releasedBooking_rebuildsFromDatabase() {
+        givenActiveBookings(List.of(booking(LocalTime.of(16, 0), BookingStatus.CONFIRMED, null)));
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isFalse();
+
+        givenActiveBookings(Collections.emptyList());
+        occupancyIndex.onBookingChanged(new BookingChangedEvent(roomId, mondayDate,
+                LocalTime.of(16, 0), LocalTime.of(18, 30), BookingStatus.CANCELLED, null));
+
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isTrue();
+        verify(bookingRepository, times(2)).findActiveIntervals(any(), any(), any());
+    }
+
+    @Test
+    void get_bitmapWithExpiredDraft_isRebuilt() {
+        givenActiveBookings(List.of(booking(LocalTime.of(16, 0), BookingStatus.DRAFT,
+                LocalDateTime.now().minusSeconds(1))));
+        isFree(LocalTime.of(16, 0), LocalTime.of(18, 30));
+
+        givenActiveBookings(Collections.emptyList());
+
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isTrue();
+        verify(bookingRepository, times(2)).findActiveIntervals(any(), any(), any());
+    }
+
+    @Test
+    void verify_divergedBitmap_isRepairedAndCounted() {
+        givenActiveBookings(Collections.emptyList());
+        isFree(LocalTime.of(16, 0), LocalTime.of(18, 30));
+
+        // A booking written by another node never reached this index
+        givenActiveBookings(List.of(booking(LocalTime.of(16, 0), BookingStatus.CONFIRMED, null)));
+
+        assertThat(occupancyIndex.verify(roomId, mondayDate)).isFalse();
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isFalse();
+        assertThat(meterRegistry.counter("availability.occupancy.mismatches").count()).isEqualTo(1.0);
+        assertThat(occupancyIndex.verify(roomId, mondayDate)).isTrue();
+    }
+
+    @Test
+    void get_confirmedOnlyBitmap_isReloadedAfterTtl() {
+        occupancyIndex = new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 30,
+                Duration.ZERO, 10_000);
+        givenActiveBookings(Collections.emptyList());
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isTrue();
+
+        // Written by another node: no event reaches this index
+        givenActiveBookings(List.of(booking(LocalTime.of(16, 0), BookingStatus.CONFIRMED, null)));
+
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isFalse();
+    }
+
+    @Test
+    void get_beyondMaxSize_dropsOtherRoomDays() {
+        meterRegistry = new SimpleMeterRegistry();
+        occupancyIndex = new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 30,
+                Duration.ofSeconds(60), 2);
+        when(bookingRepository.findActiveIntervals(any(), any(), any())).thenReturn(Collections.emptyList());
+
+        for (int day = 0; day < 5; day++) {
+            occupancyIndex.get(roomId, mondayDate.plusDays(day));
+        }
+
+        assertThat(meterRegistry.get("availability.occupancy.size").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void verifySample_carriesOnWhereThePreviousRunStopped() {
+        when(bookingRepository.findActiveIntervals(any(), any(), any())).thenReturn(Collections.emptyList());
+        int roomDays = OccupancyIndex.VERIFY_BATCH_SIZE + OccupancyIndex.VERIFY_BATCH_SIZE / 2;
+        for (long room = 1; room <= roomDays; room++) {
+            occupancyIndex.get(room, mondayDate);
+        }
+
+        occupancyIndex.verifySample();
+        occupancyIndex.verifySample();
+
+        // One load each, then every room-day verified at least once
+        for (long room = 1; room <= roomDays; room++) {
+            verify(bookingRepository, atLeast(2)).findActiveIntervals(eq(room), eq(mondayDate), any());
+        }
+    }
+
+    @Test
+    void isFree_finerGranularity_spansMultipleWords() {
+        occupancyIndex = new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 5,
+                Duration.ofSeconds(60), 10_000);
+        givenActiveBookings(List.of(booking(LocalTime.of(19, 0), BookingStatus.CONFIRMED, null)));
+
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 30))).isTrue();
+        assertThat(isFree(LocalTime.of(16, 0), LocalTime.of(18, 35))).isFalse();
+        assertThat(isFree(LocalTime.of(21, 55), LocalTime.of(23, 0))).isFalse();
+        assertThat(isFree(LocalTime.of(22, 0), LocalTime.of(23, 0))).isTrue();
+    }
+
+    @Test
+    void constructor_granularityNotDividingDay_isRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new OccupancyIndex(bookingRepository, HoldRegistry.disabled(), meterRegistry, 7,
+                Duration.ofSeconds(60), 10_000));
+    }
+
+    // A booking on [start, end) would not overlap, as the availability checks ask it
+    private boolean isFree(LocalTime start, LocalTime end) {
+        return occupancyIndex.get(roomId, mondayDate)
+                .isFree(occupancyIndex.firstBucket(start), occupancyIndex.blockingEndBucket(end));
+    }
+
+    private void givenActiveBookings(List<Booking> bookings) {
+        when(bookingRepository.findActiveIntervals(eq(roomId), eq(mondayDate),
+                any(LocalDateTime.class)))
+                .thenReturn(bookings.stream().map(BookingInterval::of).toList());
+    }
+
+    private Booking booking(LocalTime startTime, BookingStatus status, LocalDateTime expiresAt) {
+        Booking booking = new Booking();
+        booking.setRoom(room);
+        booking.setBookingDate(mondayDate);
+        booking.setStartTime(startTime);
+        booking.setEndTime(SlotRules.getEndTime(startTime));
+        booking.setStatus(status);
+        booking.setExpiresAt(expiresAt);
+        return booking;
+    }
+}
@@ -0,0 +1,84 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticLockRetryAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Transitions target;
+    private Transitions transitions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        target = new Transitions();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new OptimisticLockRetryAspect(meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(5)));
+        transitions = factory.getProxy();
+    }
+
+    @Test
+    void lostRace_isRetriedUntilItSucceeds() {
+        target.failuresLeft.set(2);
+
+        assertThat(transitions.confirm()).isEqualTo("CONFIRMED");
+
+        assertThat(target.attempts).hasValue(3);
+        assertThat(meterRegistry.get("optimistic.lock.retries").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("optimistic.lock.outcome").tag("result", "recovered").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void persistentConflict_endsInConcurrentModification() {
+        target.failuresLeft.set(Integer.MAX_VALUE);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, transitions::confirm);
+
+        assertThat(exception.getReason()).isEqualTo("CONCURRENT_MODIFICATION");
+        assertThat(target.attempts).hasValue(3);
+        assertThat(meterRegistry.get("optimistic.lock.outcome").tag("result", "exhausted").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void unannotatedMethod_isNotRetried() {
+        target.failuresLeft.set(1);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, transitions::cancel);
+        assertThat(target.attempts).hasValue(1);
+    }
+
+    static class Transitions {
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+
+        @RetryOnOptimisticLock
+        public String confirm() {
+            return transition("CONFIRMED");
+        }
+
+        public String cancel() {
+            return transition("CANCELLED");
+        }
+
+        private String transition(String status) {
+            attempts.incrementAndGet();
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new ObjectOptimisticLockingFailureException("Booking", 1L);
+            }
+            return status;
+        }
+    }
+}
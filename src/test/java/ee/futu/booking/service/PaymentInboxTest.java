@@ -0,0 +1,163 @@
+package ee.futu.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.futu.booking.web.PaymentWebhookRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentInboxTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private PaymentService paymentService;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payment_inbox");
+        paymentService = mock(PaymentService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        inbox = new PaymentInbox(jdbcTemplate, paymentService, new ObjectMapper(), meterRegistry, 2, 10, 3,
+                Duration.ZERO, Duration.ZERO, Duration.ofMinutes(2), Duration.ofMillis(50), Duration.ofDays(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        inbox.stop();
+    }
+
+    @Test
+    void appendedEvent_isAppliedAndMarkedDone() throws Exception {
+        inbox.append(webhook("ref-1", "PAID"));
+
+        assertThat(inbox.drainOnce()).isEqualTo(1);
+
+        verify(paymentService).handlePaymentWebhook(argThat(request ->
+                "ref-1".equals(request.getPaymentReference()) && "PAID".equals(request.getEvent())));
+        assertThat(statusOfOnlyEvent()).isEqualTo("DONE");
+        assertThat(meterRegistry.get("payment.inbox.latency").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.inbox.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    void eventsOfOneReference_areAppliedInArrivalOrder() throws Exception {
+        inbox.append(webhook("ref-1", "FAILED"));
+        inbox.append(webhook("ref-1", "PAID"));
+        inbox.append(webhook("ref-2", "PAID"));
+
+        // The second ref-1 event waits for the first
+        assertThat(inbox.drainOnce()).isEqualTo(2);
+        assertThat(inbox.drainOnce()).isEqualTo(1);
+        assertThat(inbox.drainOnce()).isZero();
+
+        InOrder order = inOrder(paymentService);
+        order.verify(paymentService).handlePaymentWebhook(argThat(request ->
+                "ref-1".equals(request.getPaymentReference()) && "FAILED".equals(request.getEvent())));
+        order.verify(paymentService).handlePaymentWebhook(argThat(request ->
+                "ref-1".equals(request.getPaymentReference()) && "PAID".equals(request.getEvent())));
+    }
+
+    @Test
+    void transientFailure_isRetriedThenDeadLettered() throws Exception {
+        doThrow(new IllegalStateException("connection reset")).when(paymentService).handlePaymentWebhook(any());
+        inbox.append(webhook("ref-1", "PAID"));
+
+        inbox.drainOnce();
+        assertThat(statusOfOnlyEvent()).isEqualTo("PENDING");
+        inbox.drainOnce();
+        inbox.drainOnce();
+
+        verify(paymentService, times(3)).handlePaymentWebhook(any());
+        assertThat(statusOfOnlyEvent()).isEqualTo("DEAD");
+        assertThat(inbox.drainOnce()).isZero();
+    }
+
+    @Test
+    void clientError_isDeadLetteredWithoutRetry() throws Exception {
+        doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "BOOKING_NOT_FOUND"))
+                .when(paymentService).handlePaymentWebhook(any());
+        inbox.append(webhook("ref-1", "PAID"));
+
+        inbox.drainOnce();
+
+        assertThat(statusOfOnlyEvent()).isEqualTo("DEAD");
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM payment_inbox", String.class))
+                .isEqualTo("BOOKING_NOT_FOUND");
+    }
+
+    @Test
+    void lostOptimisticLockRace_isRetried() throws Exception {
+        doThrow(new ResponseStatusException(HttpStatus.CONFLICT, "CONCURRENT_MODIFICATION"))
+                .doNothing()
+                .when(paymentService).handlePaymentWebhook(any());
+        inbox.append(webhook("ref-1", "PAID"));
+
+        inbox.drainOnce();
+        assertThat(statusOfOnlyEvent()).isEqualTo("PENDING");
+        inbox.drainOnce();
+
+        assertThat(statusOfOnlyEvent()).isEqualTo("DONE");
+    }
+
+    @Test
+    void finishedEvents_areDeletedAfterRetention() throws Exception {
+        inbox.append(webhook("ref-1", "PAID"));
+        inbox.append(webhook("ref-2", "PAID"));
+        inbox.drainOnce();
+        jdbcTemplate.update("UPDATE payment_inbox SET processed_at = ? WHERE payment_reference = 'ref-1'",
+                LocalDateTime.now().minusDays(31));
+        inbox.append(webhook("ref-3", "PAID"));
+
+        inbox.deleteFinished();
+
+        assertThat(jdbcTemplate.queryForList("SELECT payment_reference FROM payment_inbox ORDER BY id", String.class))
+                .containsExactly("ref-2", "ref-3");
+    }
+
+    @Test
+    void dispatcher_picksUpAppendedEvents() {
+        inbox.start();
+
+        inbox.append(webhook("ref-1", "PAID"));
+
+        verify(paymentService, timeout(2000)).handlePaymentWebhook(any());
+    }
+
+    private String statusOfOnlyEvent() {
+        return jdbcTemplate.queryForObject("SELECT status FROM payment_inbox", String.class);
+    }
+
+    private static PaymentWebhookRequest webhook(String paymentReference, String event) {
+        PaymentWebhookRequest request = new PaymentWebhookRequest();
+        request.setPaymentReference(paymentReference);
+        request.setEvent(event);
+        return request;
+    }
+}
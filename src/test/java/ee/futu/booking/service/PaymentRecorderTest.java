@@ -0,0 +1,131 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.Booking;
+import ee.futu.booking.domain.booking.BookingRepository;
+import ee.futu.booking.domain.payment.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentRecorderTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        jdbcTemplate.update("INSERT INTO room (name, active) VALUES ('Party Room', TRUE)");
+        Long roomId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM room", Long.class);
+        jdbcTemplate.update("""
+                INSERT INTO booking (room_id, booking_date, start_time, end_time, status, total_price_cents,
+                                     payment_reference, payment_provider, created_at, updated_at, version)
+                VALUES (?, DATE '2024-01-20', TIME '16:00:00', TIME '18:00:00', 'PENDING_PAYMENT', 2500,
+                        ?, 'stripe', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)
+                """, roomId, UUID.fromString("3f2c1d9e-8a41-4b6e-9c0f-5d7a2e4b1c88"));
+        booking = bookingRepository.findAll().get(0);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM payment");
+        jdbcTemplate.update("DELETE FROM booking");
+        jdbcTemplate.update("DELETE FROM room");
+    }
+
+    @Test
+    void queuedRecords_areWrittenInBatches() {
+        PaymentRecorder recorder = recorder(50, 1000);
+        for (int i = 0; i < 120; i++) {
+            recorder.record(booking, i % 2 == 0 ? "STARTED" : "PAID");
+        }
+
+        assertThat(paymentRepository.count()).isZero();
+        assertThat(recorder.flush()).isEqualTo(50);
+        assertThat(recorder.flush()).isEqualTo(50);
+        assertThat(recorder.flush()).isEqualTo(20);
+        assertThat(recorder.flush()).isZero();
+
+        assertThat(paymentRepository.count()).isEqualTo(120);
+        assertThat(jdbcTemplate.queryForList("""
+                SELECT DISTINCT booking_id, provider, provider_payment_id, amount_cents FROM payment
+                """)).singleElement().satisfies(row -> {
+                    assertThat(row.get("BOOKING_ID")).isEqualTo(booking.getId());
+                    assertThat(row.get("PROVIDER")).isEqualTo("stripe");
+                    assertThat(row.get("PROVIDER_PAYMENT_ID")).isEqualTo("3f2c1d9e-8a41-4b6e-9c0f-5d7a2e4b1c88");
+                    assertThat(row.get("AMOUNT_CENTS")).isEqualTo(2500);
+                });
+        assertThat(meterRegistry.get("payment.records").tag("result", "written").counter().count())
+                .isEqualTo(120);
+    }
+
+    @Test
+    void failedBatch_isRetriedRowByRow() {
+        PaymentRecorder recorder = recorder(50, 1000);
+        recorder.record(booking, "STARTED");
+        recorder.record(booking, "A_STATUS_TOO_LONG_FOR_THE_COLUMN");
+        recorder.record(booking, "PAID");
+
+        assertThat(recorder.flush()).isEqualTo(3);
+
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM payment ORDER BY id", String.class))
+                .containsExactly("STARTED", "PAID");
+        assertThat(meterRegistry.get("payment.records").tag("result", "written").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("payment.records").tag("result", "failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordInRolledBackTransaction_isNotQueued() {
+        PaymentRecorder recorder = recorder(50, 1000);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            recorder.record(booking, "PAID");
+            status.setRollbackOnly();
+        });
+
+        assertThat(recorder.flush()).isZero();
+    }
+
+    @Test
+    void fullQueue_dropsRecordsInsteadOfBlocking() {
+        PaymentRecorder recorder = recorder(50, 2);
+        for (int i = 0; i < 5; i++) {
+            recorder.record(booking, "STARTED");
+        }
+
+        assertThat(recorder.flush()).isEqualTo(2);
+        assertThat(meterRegistry.get("payment.records").tag("result", "dropped").counter().count()).isEqualTo(3);
+    }
+
+    private PaymentRecorder recorder(int batchSize, int queueCapacity) {
+        return new PaymentRecorder(paymentRepository, bookingRepository, transactionManager, meterRegistry,
+                batchSize, queueCapacity);
+    }
+}
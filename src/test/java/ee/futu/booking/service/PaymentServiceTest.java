@@ -3,17 +3,22 @@ package ee.futu.booking.service;
 import ee.futu.booking.domain.booking.Booking;
 import ee.futu.booking.domain.booking.BookingRepository;
 import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.domain.room.Room;
 import ee.futu.booking.web.StartPaymentRequest;
 import ee.futu.booking.web.StartPaymentResponse;
 import ee.futu.booking.web.PaymentWebhookRequest;
+import ee.futu.booking.web.PaymentWebhookResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,15 +30,37 @@ class PaymentServiceTest {
         @Mock
         private BookingRepository bookingRepository;
 
+        @Mock
+        private ApplicationEventPublisher eventPublisher;
+
+        @Mock
+        private HoldRegistry holdRegistry;
+
+        @Mock
+        private PaymentReferenceCache paymentReferenceCache;
+
+        @Mock
+        private ProcessedWebhookEvents processedWebhookEvents;
+
+        @Mock
+        private PaymentRecorder paymentRecorder;
+
         @InjectMocks
         private PaymentService paymentService;
 
+        private static final UUID PAYMENT_REFERENCE = UUID.fromString("3f2c1d9e-8a41-4b6e-9c0f-5d7a2e4b1c88");
+
         private Booking draftBooking;
 
         @BeforeEach
         void setUp() {
+                Room room = new Room();
+                room.setId(1L);
+
                 draftBooking = new Booking();
                 draftBooking.setId(1L);
+                draftBooking.setRoom(room);
+                draftBooking.setBookingDate(LocalDate.of(2024, 1, 15));
                 draftBooking.setStatus(BookingStatus.DRAFT);
                 draftBooking.setExpiresAt(LocalDateTime.now().plusMinutes(15));
         }
@@ -58,6 +85,7 @@ class PaymentServiceTest {
                 assertEquals(draftBooking.getExpiresAt(), response.getExpiresAt());
 
                 verify(bookingRepository).save(any(Booking.class));
+                verify(paymentRecorder).record(draftBooking, "STARTED");
         }
 
         @Test
@@ -88,27 +116,29 @@ class PaymentServiceTest {
         void webhook_paid_confirmsPendingPayment_andClearsExpiresAt() {
                 draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
                 draftBooking.setExpiresAt(LocalDateTime.now().plusMinutes(10));
-                when(bookingRepository.findByPaymentReference(any(String.class)))
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
                                 .thenReturn(java.util.Optional.of(draftBooking));
 
                 PaymentWebhookRequest request = new PaymentWebhookRequest();
-                request.setPaymentReference("ref123");
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
                 request.setEvent("PAID");
 
                 paymentService.handlePaymentWebhook(request);
 
                 verify(bookingRepository).save(any(Booking.class));
+                verify(eventPublisher).publishEvent(new BookingChangedEvent(
+                                1L, LocalDate.of(2024, 1, 15), null, null, BookingStatus.CONFIRMED, null));
         }
 
         @Test
         void webhook_paid_onExpiredPendingPayment_cancels() {
                 draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
                 draftBooking.setExpiresAt(LocalDateTime.now().minusMinutes(1));
-                when(bookingRepository.findByPaymentReference(any(String.class)))
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
                                 .thenReturn(java.util.Optional.of(draftBooking));
 
                 PaymentWebhookRequest request = new PaymentWebhookRequest();
-                request.setPaymentReference("ref123");
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
                 request.setEvent("PAID");
 
                 paymentService.handlePaymentWebhook(request);
@@ -119,11 +149,11 @@ class PaymentServiceTest {
         @Test
         void webhook_failed_cancels() {
                 draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
-                when(bookingRepository.findByPaymentReference(any(String.class)))
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
                                 .thenReturn(java.util.Optional.of(draftBooking));
 
                 PaymentWebhookRequest request = new PaymentWebhookRequest();
-                request.setPaymentReference("ref123");
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
                 request.setEvent("FAILED");
 
                 paymentService.handlePaymentWebhook(request);
@@ -134,11 +164,11 @@ class PaymentServiceTest {
         @Test
         void webhook_paid_whenBookingNotPendingPayment_throwsBadRequest() {
                 draftBooking.setStatus(BookingStatus.DRAFT);
-                when(bookingRepository.findByPaymentReference(any(String.class)))
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
                                 .thenReturn(java.util.Optional.of(draftBooking));
 
                 PaymentWebhookRequest request = new PaymentWebhookRequest();
-                request.setPaymentReference("ref123");
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
                 request.setEvent("PAID");
 
                 org.springframework.web.server.ResponseStatusException exception = assertThrows(
@@ -148,4 +178,147 @@ class PaymentServiceTest {
                 assertEquals("BOOKING_NOT_AWAITING_PAYMENT", exception.getReason());
                 verify(bookingRepository, never()).save(any(Booking.class));
         }
+
+        @Test
+        void webhook_cachedReference_resolvesBookingByIdWithoutReferenceLookup() {
+                draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
+                draftBooking.setPaymentReference(PAYMENT_REFERENCE);
+                when(paymentReferenceCache.get(PAYMENT_REFERENCE)).thenReturn(java.util.Optional.of(1L));
+                when(bookingRepository.findById(1L)).thenReturn(java.util.Optional.of(draftBooking));
+
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
+                request.setEvent("FAILED");
+
+                paymentService.handlePaymentWebhook(request);
+
+                assertEquals(BookingStatus.CANCELLED, draftBooking.getStatus());
+                verify(bookingRepository, never()).findByPaymentReference(any(UUID.class));
+        }
+
+        @Test
+        void webhook_malformedReference_throwsNotFound() {
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference("ref123");
+                request.setEvent("PAID");
+
+                org.springframework.web.server.ResponseStatusException exception = assertThrows(
+                                org.springframework.web.server.ResponseStatusException.class,
+                                () -> paymentService.handlePaymentWebhook(request));
+
+                assertEquals("BOOKING_NOT_FOUND", exception.getReason());
+                verifyNoInteractions(bookingRepository);
+        }
+
+        @Test
+        void webhook_paid_marksEventProcessed() {
+                draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
+                                .thenReturn(java.util.Optional.of(draftBooking));
+
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
+                request.setEvent("PAID");
+                request.setEventId("evt_1");
+
+                paymentService.handlePaymentWebhook(request);
+
+                verify(processedWebhookEvents).markProcessed(request);
+                verify(paymentRecorder).record(draftBooking, "PAID");
+        }
+
+        @Test
+        void webhook_unknownEventOnSettledBooking_isRecordedAsUnknown() {
+                draftBooking.setStatus(BookingStatus.CONFIRMED);
+                when(bookingRepository.findByPaymentReference(any(UUID.class)))
+                                .thenReturn(java.util.Optional.of(draftBooking));
+
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
+                request.setEvent("CHARGE_DISPUTE_FUNDS_WITHDRAWN");
+
+                paymentService.handlePaymentWebhook(request);
+
+                verify(paymentRecorder).record(draftBooking, "UNKNOWN");
+        }
+
+        @Test
+        void webhook_redelivery_isAcknowledgedWithoutLoadingBooking() {
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference(PAYMENT_REFERENCE.toString());
+                request.setEvent("PAID");
+                request.setEventId("evt_1");
+                when(processedWebhookEvents.isProcessed(request)).thenReturn(true);
+
+                paymentService.handlePaymentWebhook(request);
+
+                verifyNoInteractions(bookingRepository, eventPublisher, paymentRecorder);
+                verify(processedWebhookEvents, never()).markProcessed(any());
+        }
+
+        @Test
+        void webhookBatch_resolvesReferencesInOneQuery_andReportsEachOutcome() {
+                UUID otherReference = UUID.fromString("9a1b7c3d-2e4f-4a5b-8c6d-0e1f2a3b4c5d");
+                draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
+                draftBooking.setPaymentReference(PAYMENT_REFERENCE);
+                Booking confirmed = new Booking();
+                confirmed.setId(2L);
+                confirmed.setRoom(draftBooking.getRoom());
+                confirmed.setStatus(BookingStatus.CONFIRMED);
+                confirmed.setPaymentReference(otherReference);
+                when(processedWebhookEvents.findProcessed(anyList())).thenReturn(new java.util.HashSet<>());
+                when(bookingRepository.findByPaymentReferenceIn(anyCollection()))
+                                .thenReturn(java.util.List.of(draftBooking, confirmed));
+
+                PaymentWebhookRequest paid = webhook(PAYMENT_REFERENCE.toString(), "PAID", "evt_1");
+                PaymentWebhookRequest late = webhook(otherReference.toString(), "FAILED", "evt_2");
+                PaymentWebhookRequest unknown = webhook(UUID.randomUUID().toString(), "PAID", "evt_3");
+                PaymentWebhookRequest malformed = webhook("ref123", "PAID", "evt_4");
+
+                java.util.List<PaymentWebhookResult> results = paymentService.handlePaymentWebhooks(
+                                java.util.List.of(paid, late, unknown, malformed));
+
+                assertEquals(java.util.List.of(PaymentWebhookResult.Outcome.APPLIED,
+                                PaymentWebhookResult.Outcome.IGNORED, PaymentWebhookResult.Outcome.REJECTED,
+                                PaymentWebhookResult.Outcome.REJECTED),
+                                results.stream().map(PaymentWebhookResult::getOutcome).toList());
+                assertEquals("BOOKING_NOT_FOUND", results.get(2).getError());
+                assertEquals(BookingStatus.CONFIRMED, draftBooking.getStatus());
+                verify(bookingRepository, times(1)).findByPaymentReferenceIn(anyCollection());
+                verify(bookingRepository, never()).save(any(Booking.class));
+                verify(bookingRepository).flush();
+                verify(processedWebhookEvents).markAllProcessed(java.util.List.of(paid, late));
+                verify(eventPublisher, times(1)).publishEvent(any(BookingChangedEvent.class));
+        }
+
+        @Test
+        void webhookBatch_skipsEventsAlreadyProcessedOrRepeatedInBatch() {
+                draftBooking.setStatus(BookingStatus.PENDING_PAYMENT);
+                draftBooking.setPaymentReference(PAYMENT_REFERENCE);
+                PaymentWebhookRequest earlier = webhook(PAYMENT_REFERENCE.toString(), "PAID", "evt_0");
+                PaymentWebhookRequest paid = webhook(PAYMENT_REFERENCE.toString(), "PAID", "evt_1");
+                PaymentWebhookRequest repeat = webhook(PAYMENT_REFERENCE.toString(), "PAID", "evt_1");
+                when(processedWebhookEvents.findProcessed(anyList()))
+                                .thenReturn(new java.util.HashSet<>(java.util.Set.of("id:evt_0")));
+                when(bookingRepository.findByPaymentReferenceIn(anyCollection()))
+                                .thenReturn(java.util.List.of(draftBooking));
+
+                java.util.List<PaymentWebhookResult> results = paymentService.handlePaymentWebhooks(
+                                java.util.List.of(earlier, paid, repeat));
+
+                assertEquals(java.util.List.of(PaymentWebhookResult.Outcome.DUPLICATE,
+                                PaymentWebhookResult.Outcome.APPLIED, PaymentWebhookResult.Outcome.DUPLICATE),
+                                results.stream().map(PaymentWebhookResult::getOutcome).toList());
+                verify(processedWebhookEvents, times(1)).countDuplicate();
+                verify(paymentRecorder, times(1)).record(draftBooking, "PAID");
+                verify(processedWebhookEvents).markAllProcessed(java.util.List.of(paid));
+        }
+
+        private static PaymentWebhookRequest webhook(String reference, String event, String eventId) {
+                PaymentWebhookRequest request = new PaymentWebhookRequest();
+                request.setPaymentReference(reference);
+                request.setEvent(event);
+                request.setEventId(eventId);
+                return request;
+        }
 }
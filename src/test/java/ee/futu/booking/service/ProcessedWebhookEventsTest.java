@@ -0,0 +1,104 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.web.PaymentWebhookRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProcessedWebhookEventsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM processed_webhook_event");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void markedEvent_isRecognisedAfterRestart() {
+        processedEvents().markProcessed(webhook("evt_1", "PAID"));
+
+        ProcessedWebhookEvents restarted = processedEvents();
+        assertThat(restarted.isProcessed(webhook("evt_1", "PAID"))).isTrue();
+        assertThat(restarted.isProcessed(webhook("evt_2", "PAID"))).isFalse();
+    }
+
+    @Test
+    void eventsWithoutId_areKeyedByReferenceAndType() {
+        ProcessedWebhookEvents events = processedEvents();
+        events.markProcessed(webhook(null, "PAID"));
+
+        assertThat(events.isProcessed(webhook(null, "PAID"))).isTrue();
+        assertThat(events.isProcessed(webhook(null, "FAILED"))).isFalse();
+    }
+
+    @Test
+    void rolledBackMark_doesNotHideRedelivery() {
+        ProcessedWebhookEvents events = processedEvents();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            events.markProcessed(webhook("evt_1", "PAID"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(events.isProcessed(webhook("evt_1", "PAID"))).isFalse();
+    }
+
+    @Test
+    void duplicatesAndNewEvents_areCountedOncePerDelivery() {
+        ProcessedWebhookEvents events = processedEvents();
+        events.markProcessed(webhook("evt_1", "PAID"));
+        events.isProcessed(webhook("evt_1", "PAID"));
+        events.isProcessed(webhook("evt_1", "PAID"));
+
+        assertThat(meterRegistry.get("payment.webhook.events").tag("result", "new").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.webhook.events").tag("result", "duplicate").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void batchLookup_findsEventsMarkedInEarlierBatches() {
+        processedEvents().markAllProcessed(List.of(webhook("evt_1", "PAID"), webhook(null, "FAILED")));
+
+        ProcessedWebhookEvents restarted = processedEvents();
+        assertThat(restarted.findProcessed(List.of(webhook("evt_1", "PAID"), webhook("evt_2", "PAID"),
+                webhook(null, "FAILED")))).containsExactlyInAnyOrder("id:evt_1",
+                ProcessedWebhookEvents.keyOf(webhook(null, "FAILED")));
+        assertThat(meterRegistry.get("payment.webhook.events").tag("result", "duplicate").counter().count())
+                .isEqualTo(2);
+    }
+
+    private ProcessedWebhookEvents processedEvents() {
+        return new ProcessedWebhookEvents(jdbcTemplate, meterRegistry, Duration.ofDays(30), 100);
+    }
+
+    private static PaymentWebhookRequest webhook(String eventId, String event) {
+        PaymentWebhookRequest request = new PaymentWebhookRequest();
+        request.setPaymentReference("3f2c1d9e-8a41-4b6e-9c0f-5d7a2e4b1c88");
+        request.setEvent(event);
+        request.setEventId(eventId);
+        return request;
+    }
+}
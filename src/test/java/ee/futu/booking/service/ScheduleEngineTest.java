@@ -0,0 +1,88 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.slot.SlotTemplate;
+import ee.futu.booking.domain.slot.SlotTemplateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduleEngineTest {
+
+    @Mock
+    private SlotTemplateRepository slotTemplateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ScheduleEngine scheduleEngine;
+    private LocalDate mondayDate;
+    private LocalDate saturdayDate;
+
+    @BeforeEach
+    void setUp() {
+        scheduleEngine = new ScheduleEngine(slotTemplateRepository, eventPublisher);
+        mondayDate = LocalDate.of(2024, 1, 15); // Monday
+        saturdayDate = LocalDate.of(2024, 1, 20); // Saturday
+    }
+
+    @Test
+    void beforeLoad_matchesSlotRules() {
+        assertThat(scheduleEngine.slotsFor(mondayDate)).extracting(ScheduleEngine.Slot::startTime)
+                .containsExactly(LocalTime.of(16, 0), LocalTime.of(19, 0));
+        assertThat(scheduleEngine.slotsFor(saturdayDate)).hasSize(4)
+                .allSatisfy(slot -> assertThat(slot.priceCents()).isEqualTo(26000));
+        assertThat(scheduleEngine.slotAt(mondayDate, LocalTime.of(10, 0))).isNull();
+    }
+
+    @Test
+    void reload_swapsInTemplatesWithPerSlotPricesAndPublishesOnce() {
+        when(slotTemplateRepository.findByActiveTrue()).thenReturn(List.of(
+                template(1, 2, LocalTime.of(19, 0), LocalTime.of(21, 30), 23000),
+                template(1, 1, LocalTime.of(17, 0), LocalTime.of(19, 0), 19000)));
+
+        scheduleEngine.reload();
+        scheduleEngine.reload();
+
+        assertThat(scheduleEngine.slotsFor(mondayDate)).containsExactly(
+                new ScheduleEngine.Slot(LocalTime.of(17, 0), LocalTime.of(19, 0), 19000),
+                new ScheduleEngine.Slot(LocalTime.of(19, 0), LocalTime.of(21, 30), 23000));
+        assertThat(scheduleEngine.slotsFor(saturdayDate)).isEmpty();
+        assertThat(scheduleEngine.slotsFor(mondayDate)).isSameAs(scheduleEngine.slotsFor(mondayDate.plusWeeks(1)));
+        verify(eventPublisher, times(1)).publishEvent(any(ScheduleChangedEvent.class));
+    }
+
+    @Test
+    void reload_withoutActiveTemplates_keepsDefaultSchedule() {
+        when(slotTemplateRepository.findByActiveTrue()).thenReturn(List.of());
+
+        scheduleEngine.reload();
+
+        assertThat(scheduleEngine.slotAt(saturdayDate, LocalTime.of(10, 0))).isNotNull();
+        verify(eventPublisher, never()).publishEvent(any(ScheduleChangedEvent.class));
+    }
+
+    private SlotTemplate template(int weekday, int slotIndex, LocalTime start, LocalTime end, int priceCents) {
+        SlotTemplate template = new SlotTemplate();
+        template.setWeekday((short) weekday);
+        template.setSlotIndex((short) slotIndex);
+        template.setStartTime(start);
+        template.setEndTime(end);
+        template.setPriceCents(priceCents);
+        return template;
+    }
+}
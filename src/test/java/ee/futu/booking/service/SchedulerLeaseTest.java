@@ -0,0 +1,109 @@
+package ee.futu.booking.service;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances sharing one database, each with its own lease client.
+ */
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchedulerLeaseTest {
+
+    private static final String JOB = BookingExpirationScheduler.SWEEP_JOB;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistryA;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM scheduler_lock");
+        jdbcTemplate.update("DELETE FROM booking");
+        meterRegistryA = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void job_runsOnOneInstancePerTick() {
+        SchedulerLease nodeA = lease("node-a", Duration.ofMinutes(1), meterRegistryA);
+        SchedulerLease nodeB = lease("node-b", Duration.ofMinutes(1), new SimpleMeterRegistry());
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(nodeA.runIfLeader(JOB, lease -> runs.incrementAndGet())).isTrue();
+        assertThat(nodeB.runIfLeader(JOB, lease -> runs.incrementAndGet())).isFalse();
+        assertThat(nodeA.runIfLeader(JOB, lease -> runs.incrementAndGet())).isTrue();
+
+        assertThat(runs).hasValue(2);
+        assertThat(meterRegistryA.get("scheduler.lease.leader").tag("job", JOB).gauge().value()).isEqualTo(1);
+        assertThat(meterRegistryA.get("scheduler.lease.lag").tag("job", JOB).gauge().value()).isLessThan(5);
+    }
+
+    @Test
+    void lapsedLease_failsOverWithHigherFencingToken() throws Exception {
+        SchedulerLease nodeA = lease("node-a", Duration.ofMillis(100), meterRegistryA);
+        SchedulerLease nodeB = lease("node-b", Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        long tokenA = nodeA.tryAcquire(JOB).orElseThrow().fencingToken();
+        assertThat(nodeA.tryAcquire(JOB).orElseThrow().fencingToken()).isEqualTo(tokenA);
+        Thread.sleep(150);
+
+        assertThat(nodeB.tryAcquire(JOB).orElseThrow().fencingToken()).isEqualTo(tokenA + 1);
+        assertThat(nodeA.tryAcquire(JOB)).isEmpty();
+        assertThat(meterRegistryA.get("scheduler.lease.leader").tag("job", JOB).gauge().value()).isZero();
+    }
+
+    @Test
+    void releasedLease_isTakenOverOnNextTick() {
+        SchedulerLease nodeA = lease("node-a", Duration.ofMinutes(1), meterRegistryA);
+        SchedulerLease nodeB = lease("node-b", Duration.ofMinutes(1), new SimpleMeterRegistry());
+        nodeA.tryAcquire(JOB).orElseThrow();
+
+        nodeA.releaseAll();
+
+        assertThat(nodeB.tryAcquire(JOB)).isPresent();
+    }
+
+    @Test
+    void staleLeader_isFencedOutOfTheSweep() throws Exception {
+        SchedulerLease nodeA = lease("node-a", Duration.ofMillis(100), meterRegistryA);
+        SchedulerLease nodeB = lease("node-b", Duration.ofMinutes(1), new SimpleMeterRegistry());
+        ExpiredBookingSweep sweep = new ExpiredBookingSweep(jdbcTemplate, transactionManager, event -> { }, 10);
+        jdbcTemplate.update("INSERT INTO room (name, active) VALUES ('Party Room', TRUE)");
+        jdbcTemplate.update("""
+                INSERT INTO booking (room_id, booking_date, start_time, end_time, status, total_price_cents,
+                                     expires_at)
+                VALUES ((SELECT MAX(id) FROM room), DATE '2024-01-20', '16:00', '18:30', 'DRAFT', 26000, ?)
+                """, LocalDateTime.now().minusMinutes(1));
+        List<BookingStatus> statuses = List.of(BookingStatus.DRAFT);
+
+        SchedulerLease.Lease stale = nodeA.tryAcquire(JOB).orElseThrow();
+        Thread.sleep(150);
+        SchedulerLease.Lease current = nodeB.tryAcquire(JOB).orElseThrow();
+
+        assertThat(sweep.cancelExpired(statuses, LocalDateTime.now(), stale)).isZero();
+        assertThat(sweep.cancelExpired(statuses, LocalDateTime.now(), current)).isEqualTo(1);
+    }
+
+    private SchedulerLease lease(String instanceId, Duration duration, SimpleMeterRegistry meterRegistry) {
+        return new SchedulerLease(jdbcTemplate, meterRegistry, duration, instanceId);
+    }
+}
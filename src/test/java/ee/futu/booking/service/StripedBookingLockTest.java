@@ -0,0 +1,134 @@
+package ee.futu.booking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StripedBookingLockTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StripedBookingLock bookingLock;
+    private LocalDate saturdayDate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingLock = new StripedBookingLock(meterRegistry, 1024, Duration.ofMillis(200));
+        saturdayDate = LocalDate.of(2024, 1, 20); // Saturday
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void lock_heldUntilTransactionCompletes() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        bookingLock.lock(1L, saturdayDate);
+
+        CompletableFuture<Void> contender = CompletableFuture.runAsync(() -> inTransaction(1L, saturdayDate));
+        assertThat(contender).failsWithin(1, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ResponseStatusException.class);
+
+        completeTransaction();
+
+        CompletableFuture.runAsync(() -> inTransaction(1L, saturdayDate)).get(1, TimeUnit.SECONDS);
+        assertThat(meterRegistry.timer("booking.lock.wait", "type", "striped").count()).isEqualTo(3);
+    }
+
+    @Test
+    void lock_otherRoomDayIsNotBlocked() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        bookingLock.lock(1L, saturdayDate);
+
+        LocalDate otherDate = saturdayDate.plusDays(1);
+        assertThat(bookingLock.stripeFor(2L, otherDate)).isNotSameAs(bookingLock.stripeFor(1L, saturdayDate));
+        CompletableFuture.runAsync(() -> inTransaction(2L, otherDate)).get(1, TimeUnit.SECONDS);
+
+        completeTransaction();
+    }
+
+    @Test
+    void lockAll_takesStripesInIndexOrderWhateverTheRoomDayOrder() throws Exception {
+        bookingLock = new StripedBookingLock(meterRegistry, 2, Duration.ofSeconds(5));
+        // Two room-days in (roomId, date) order whose stripes come in the opposite order
+        long roomId = 1;
+        while (bookingLock.stripeIndex(roomId, saturdayDate) != 1
+                || bookingLock.stripeIndex(roomId + 1, saturdayDate) != 0) {
+            roomId++;
+        }
+        RoomDay higher = new RoomDay(roomId, saturdayDate);
+        RoomDay lower = new RoomDay(roomId + 1, saturdayDate);
+        ReentrantLock lowerStripe = bookingLock.stripeFor(lower.roomId(), lower.date());
+
+        TransactionSynchronizationManager.initSynchronization();
+        bookingLock.lock(higher.roomId(), higher.date());
+
+        List<RoomDay> batch = List.of(higher, lower);
+        CompletableFuture<Void> contender = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                bookingLock.lockAll(batch);
+                completeTransaction();
+            } finally {
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.clearSynchronization();
+                }
+            }
+        });
+
+        // The contender takes the lower stripe first, then waits for the one held here
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!lowerStripe.isLocked() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(lowerStripe.isLocked()).isTrue();
+        assertThat(contender).isNotDone();
+
+        completeTransaction();
+        contender.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lock_outsideTransaction_isRejected() {
+        assertThrows(IllegalStateException.class, () -> bookingLock.lock(1L, saturdayDate));
+    }
+
+    private void inTransaction(Long roomId, LocalDate date) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookingLock.lock(roomId, date);
+            completeTransaction();
+        } finally {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+    }
+
+    private static void completeTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
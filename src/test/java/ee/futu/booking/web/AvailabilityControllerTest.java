@@ -0,0 +1,77 @@
+package ee.futu.booking.web;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.service.AvailabilityService;
+import ee.futu.booking.service.AvailabilityVersions;
+import ee.futu.booking.service.BookingChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = AvailabilityController.class)
+@Import(AvailabilityVersions.class)
+class AvailabilityControllerTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 1, 15);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AvailabilityVersions availabilityVersions;
+
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private AvailabilityStreamBroadcaster streamBroadcaster;
+
+    @Test
+    void getAvailability_matchingIfNoneMatch_returns304WithoutLoading() throws Exception {
+        when(availabilityService.getAvailability(any(), any()))
+                .thenReturn(new AvailabilityResponse(MONDAY, 1L, Collections.emptyList()));
+
+        String etag = mockMvc.perform(get("/api/availability").param("date", "2024-01-15").param("roomId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/availability").param("date", "2024-01-15").param("roomId", "1")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        verify(availabilityService, times(1)).getAvailability(1L, MONDAY);
+    }
+
+    @Test
+    void getAvailability_afterBookingChange_returnsFreshBody() throws Exception {
+        when(availabilityService.getAvailability(any(), any()))
+                .thenReturn(new AvailabilityResponse(MONDAY, 1L, Collections.emptyList()));
+        String etag = availabilityVersions.etag(1L, MONDAY);
+
+        availabilityVersions.onBookingChanged(new BookingChangedEvent(1L, MONDAY,
+                LocalTime.of(16, 0), LocalTime.of(18, 30), BookingStatus.CONFIRMED, null));
+
+        mockMvc.perform(get("/api/availability").param("date", "2024-01-15").param("roomId", "1")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk());
+
+        verify(availabilityService, times(1)).getAvailability(1L, MONDAY);
+    }
+}
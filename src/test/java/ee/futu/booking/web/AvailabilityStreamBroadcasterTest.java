@@ -0,0 +1,123 @@
+package ee.futu.booking.web;
+
+import ee.futu.booking.domain.booking.BookingStatus;
+import ee.futu.booking.service.AvailabilityService;
+import ee.futu.booking.service.BookingChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityStreamBroadcasterTest {
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    private AvailabilityStreamBroadcaster broadcaster;
+    private LocalDate mondayDate;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new AvailabilityStreamBroadcaster(availabilityService, new SimpleMeterRegistry(),
+                Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMillis(50), 2, Duration.ofMillis(200));
+        mondayDate = LocalDate.of(2024, 1, 15); // Monday
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void onBookingChanged_burstForSubscribedRoomDay_readsAvailabilityOnce() {
+        when(availabilityService.getAvailability(1L, mondayDate))
+                .thenReturn(new AvailabilityResponse(mondayDate, 1L, Collections.emptyList()));
+        when(availabilityService.getAvailabilityRange(mondayDate, mondayDate, List.of(1L)))
+                .thenReturn(new AvailabilityRangeResponse(mondayDate, mondayDate,
+                        List.of(new AvailabilityResponse(mondayDate, 1L, Collections.emptyList()))));
+
+        broadcaster.subscribe(1L, mondayDate);
+        broadcaster.subscribe(1L, mondayDate);
+        for (int i = 0; i < 5; i++) {
+            broadcaster.onBookingChanged(event(1L, BookingStatus.CONFIRMED));
+        }
+
+        assertThat(broadcaster.subscriberCount()).isEqualTo(2);
+        verify(availabilityService, timeout(1000).times(1)).getAvailabilityRange(mondayDate, mondayDate, List.of(1L));
+        verify(availabilityService, after(200).times(1)).getAvailabilityRange(any(), any(), anyList());
+    }
+
+    @Test
+    void subscriberThatStopsReading_isDroppedAndFreesTheSender() throws InterruptedException {
+        AvailabilityResponse availability = new AvailabilityResponse(mondayDate, 1L, Collections.emptyList());
+        when(availabilityService.getAvailability(1L, mondayDate)).thenReturn(availability);
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicBoolean senderInterrupted = new AtomicBoolean();
+        SseEmitter stalled = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    released.countDown();
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        CountDownLatch delivered = new CountDownLatch(2);
+        SseEmitter reading = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                senderInterrupted.compareAndSet(false, Thread.currentThread().isInterrupted());
+                delivered.countDown();
+            }
+        };
+
+        broadcaster.subscribe(1L, mondayDate, stalled);
+        assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(broadcaster.subscriberCount()).isZero();
+
+        // Both pool threads still serve other subscribers, none left interrupted
+        broadcaster.subscribe(1L, mondayDate, reading);
+        broadcaster.subscribe(1L, mondayDate, reading);
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(senderInterrupted).isFalse();
+    }
+
+    @Test
+    void onBookingChanged_withoutSubscribers_doesNotReadAvailability() {
+        broadcaster.onBookingChanged(event(2L, BookingStatus.CANCELLED));
+
+        verify(availabilityService, after(200).never()).getAvailabilityRange(any(), any(), anyList());
+    }
+
+    private BookingChangedEvent event(Long roomId, BookingStatus status) {
+        return new BookingChangedEvent(roomId, mondayDate, LocalTime.of(16, 0), LocalTime.of(18, 30), status, null);
+    }
+}
@@ -0,0 +1,262 @@
+package ee.futu.booking.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.futu.booking.service.IdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyFilterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyFilter filter;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_key");
+        IdempotencyStore store = new IdempotencyStore(jdbcTemplate, new SimpleMeterRegistry(), Duration.ofHours(24),
+                100, Duration.ofSeconds(5), Duration.ofSeconds(60));
+        filter = new IdempotencyFilter(store, new ObjectMapper().findAndRegisterModules(),
+                Set.of("/api/bookings/hold"));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void repeatedKey_replaysStoredResponseWithoutRunningAgain() throws Exception {
+        FilterChain chain = respondingWith(201, "{\"id\":1}");
+
+        MockHttpServletResponse first = send("key-1", "{\"roomId\":1}", chain);
+        MockHttpServletResponse second = send("key-1", "{\"roomId\":1}", chain);
+
+        assertThat(executions).hasValue(1);
+        assertThat(second.getStatus()).isEqualTo(201);
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void reusedKeyWithDifferentBody_isRejected() throws Exception {
+        FilterChain chain = respondingWith(201, "{\"id\":1}");
+
+        send("key-2", "{\"roomId\":1}", chain);
+        MockHttpServletResponse second = send("key-2", "{\"roomId\":2}", chain);
+
+        assertThat(executions).hasValue(1);
+        assertThat(second.getStatus()).isEqualTo(422);
+        assertThat(second.getContentAsString()).contains("IDEMPOTENCY_KEY_REUSED");
+    }
+
+    @Test
+    void serverError_isNotStored() throws Exception {
+        FilterChain chain = respondingWith(503, "{\"code\":\"BOOKING_LOCK_TIMEOUT\"}");
+
+        send("key-3", "{\"roomId\":1}", chain);
+        send("key-3", "{\"roomId\":1}", chain);
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void lostRaceConflict_isNotStored() throws Exception {
+        FilterChain chain = respondingWith(409, "{\"code\":\"CONCURRENT_MODIFICATION\"}");
+
+        send("key-6", "{\"roomId\":1}", chain);
+        send("key-6", "{\"roomId\":1}", chain);
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void overlapConflict_isStored() throws Exception {
+        FilterChain chain = respondingWith(409, "{\"code\":\"BOOKING_OVERLAP\"}");
+
+        send("key-7", "{\"roomId\":1}", chain);
+        MockHttpServletResponse second = send("key-7", "{\"roomId\":1}", chain);
+
+        assertThat(executions).hasValue(1);
+        assertThat(second.getContentAsString()).contains("BOOKING_OVERLAP");
+    }
+
+    @Test
+    void failureToStoreResponse_keepsKeyClaimed() throws Exception {
+        IdempotencyStore failing = new IdempotencyStore(jdbcTemplate, new SimpleMeterRegistry(),
+                Duration.ofHours(24), 100, Duration.ofMillis(200), Duration.ofSeconds(60)) {
+            @Override
+            public void complete(String endpoint, String caller, String idempotencyKey, String requestHash,
+                    int status, String contentType, String body) {
+                throw new IllegalStateException("connection reset");
+            }
+        };
+        filter = new IdempotencyFilter(failing, new ObjectMapper().findAndRegisterModules(),
+                Set.of("/api/bookings/hold"));
+        FilterChain chain = respondingWith(201, "{\"id\":1}");
+
+        MockHttpServletResponse first = send("key-8", "{\"roomId\":1}", chain);
+        MockHttpServletResponse retry = send("key-8", "{\"roomId\":1}", chain);
+
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(409);
+        assertThat(retry.getContentAsString()).contains("IDEMPOTENCY_KEY_IN_PROGRESS");
+    }
+
+    @Test
+    void pathsMatchWithinTheApplication_underAContextPath() throws Exception {
+        FilterChain chain = respondingWith(201, "{\"id\":1}");
+
+        sendUnder("/booking", "key-9", chain);
+        MockHttpServletResponse second = sendUnder("/booking", "key-9", chain);
+
+        assertThat(executions).hasValue(1);
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void bufferedBody_canBeReadAsynchronously() throws Exception {
+        AtomicInteger allRead = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        in.read();
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+        };
+
+        send("key-10", "{\"roomId\":1}", chain);
+
+        assertThat(allRead).hasValue(1);
+    }
+
+    @Test
+    void concurrentRequestsWithSameKey_runOnce() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            entered.countDown();
+            await(release);
+            response.getOutputStream().write("{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(
+                () -> sendUnchecked("key-4", "{\"roomId\":1}", chain));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(
+                () -> sendUnchecked("key-4", "{\"roomId\":1}", chain));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getContentAsString()).isEqualTo("{\"id\":7}");
+        assertThat(second.get(5, TimeUnit.SECONDS).getContentAsString()).isEqualTo("{\"id\":7}");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void sameKeyFromAnotherClient_runsItsOwnRequest() throws Exception {
+        FilterChain chain = respondingWith(201, "{\"id\":1}");
+
+        send("key-5", "client-a", "{\"roomId\":1}", chain);
+        MockHttpServletResponse other = send("key-5", "client-b", "{\"roomId\":1}", chain);
+
+        assertThat(executions).hasValue(2);
+        assertThat(other.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    private FilterChain respondingWith(int status, String body) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            // Downstream must still be able to read the body the filter hashed
+            assertThat(request.getInputStream().readAllBytes()).isNotEmpty();
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse send(String key, String body, FilterChain chain) throws Exception {
+        return send(key, "client-a", body, chain);
+    }
+
+    private MockHttpServletResponse send(String key, String clientId, String body, FilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/bookings/hold");
+        request.setServletPath("/api/bookings/hold");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.addHeader(IdempotencyFilter.CLIENT_ID_HEADER, clientId);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse sendUnder(String contextPath, String key, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", contextPath + "/api/bookings/hold");
+        request.setContextPath(contextPath);
+        request.setServletPath("/api/bookings/hold");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.addHeader(IdempotencyFilter.CLIENT_ID_HEADER, "client-a");
+        request.setContentType("application/json");
+        request.setContent("{\"roomId\":1}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse sendUnchecked(String key, String body, FilterChain chain) {
+        try {
+            return send(key, body, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
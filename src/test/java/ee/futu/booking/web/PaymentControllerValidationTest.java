@@ -1,6 +1,8 @@
 package ee.futu.booking.web;
 
+import ee.futu.booking.service.PaymentInbox;
 import ee.futu.booking.service.PaymentService;
+import ee.futu.booking.service.ProcessedWebhookEvents;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -8,6 +10,13 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -21,6 +30,12 @@ class PaymentControllerValidationTest {
     @MockBean
     private PaymentService paymentService;
 
+    @MockBean
+    private PaymentInbox paymentInbox;
+
+    @MockBean
+    private ProcessedWebhookEvents processedWebhookEvents;
+
     @Test
     void startPayment_invalidBookingId_returnsValidationEnvelope() throws Exception {
         mockMvc.perform(post("/api/payments/start")
@@ -48,5 +63,64 @@ class PaymentControllerValidationTest {
                 .andExpect(jsonPath("$.path").value("/api/payments/webhook"))
                 .andExpect(jsonPath("$.timestamp").exists());
     }
-}
 
+    @Test
+    void webhook_validRequest_isQueuedAndAccepted() throws Exception {
+        mockMvc.perform(post("/api/payments/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"paymentReference":"ref-1","event":"PAID"}
+                                """))
+                .andExpect(status().isAccepted());
+
+        verify(paymentInbox).append(argThat(request -> "ref-1".equals(request.getPaymentReference())));
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void webhook_redelivery_isAcknowledgedWithoutQueueing() throws Exception {
+        when(processedWebhookEvents.isProcessed(any())).thenReturn(true);
+
+        mockMvc.perform(post("/api/payments/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"paymentReference":"ref-1","event":"PAID","eventId":"evt_1"}
+                                """))
+                .andExpect(status().isOk());
+
+        verifyNoInteractions(paymentInbox);
+    }
+
+    @Test
+    void webhookBatch_invalidEvent_returnsValidationEnvelope() throws Exception {
+        mockMvc.perform(post("/api/payments/webhook/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events":[{"paymentReference":"ref-1","event":"PAID"},{"paymentReference":""}]}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_FAILED"));
+
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void webhookBatch_returnsOutcomePerEvent() throws Exception {
+        when(paymentService.handlePaymentWebhooks(any())).thenReturn(List.of(
+                new PaymentWebhookResult("ref-1", "evt_1", PaymentWebhookResult.Outcome.APPLIED, "CONFIRMED", null),
+                new PaymentWebhookResult("ref-2", null, PaymentWebhookResult.Outcome.REJECTED, null,
+                        "BOOKING_NOT_FOUND")));
+
+        mockMvc.perform(post("/api/payments/webhook/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events":[{"paymentReference":"ref-1","event":"PAID","eventId":"evt_1"},
+                                           {"paymentReference":"ref-2","event":"PAID"}]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$.results[1].error").value("BOOKING_NOT_FOUND"));
+
+        verifyNoInteractions(paymentInbox);
+    }
+}